@@ -0,0 +1,122 @@
+package com.kcwongjoe.joelib.math.autodiff;
+
+import com.kcwongjoe.joelib.math.sgd.BatchObjectiveFunction;
+
+/**
+ * Objective Function of a {@link DualFunction}. df(x)/dtheta is calculated by forward-mode automatic differentiation,
+ * so the model does not need a hand-written derivative, and f(x) and df(x)/dtheta come out of one evaluation.
+ * <p>
+ * Each thread evaluates on its own {@link DualWorkspace}, so the batch methods can be called concurrently by a
+ * parallel solver.
+ **/
+public class AutoDiffObjectiveFunction implements BatchObjectiveFunction {
+
+    private final DualFunction function;
+    private final double[] parameters;
+
+    private final ThreadLocal<DualWorkspace> workspaces;
+
+    /**
+     * Constructor
+     *
+     * @param function   Model
+     * @param parameters Initial parameters
+     */
+    public AutoDiffObjectiveFunction(DualFunction function, double[] parameters) {
+        // Throw Exception
+        if (function == null)
+            throw new NullPointerException("function can't not be null");
+        if (parameters == null)
+            throw new NullPointerException("parameters can't not be null");
+
+        this.function = function;
+        this.parameters = parameters.clone();
+        int numOfParameters = parameters.length;
+        this.workspaces = ThreadLocal.withInitial(() -> new DualWorkspace(numOfParameters));
+    }
+
+    @Override
+    public void setParameter(double[] parameters) {
+        if (parameters.length != this.parameters.length)
+            throw new IllegalArgumentException("Length of parameters (" + parameters.length + ") must be = " + this.parameters.length);
+
+        System.arraycopy(parameters, 0, this.parameters, 0, parameters.length);
+    }
+
+    @Override
+    public double[] getParameter() {
+        return this.parameters;
+    }
+
+    /**
+     * Get the workspace of the current thread with the current parameters
+     *
+     * @param withGradient Calculate the gradient?
+     * @return Return the workspace
+     */
+    private DualWorkspace workspace(boolean withGradient) {
+        DualWorkspace ws = this.workspaces.get();
+        ws.setParameters(this.parameters);
+        ws.setWithGradient(withGradient);
+        return ws;
+    }
+
+    // region function
+
+    @Override
+    public double[] function(double[] x) {
+        double[] fx = new double[x.length];
+        function(x, 0, x.length, fx);
+        return fx;
+    }
+
+    @Override
+    public void function(double[] x, int from, int to, double[] fx) {
+        DualWorkspace ws = workspace(false);
+        for (int i = from; i < to; i++) {
+            ws.clear();
+            fx[i - from] = ws.value(this.function.evaluate(ws, x[i]));
+        }
+    }
+
+    // endregion
+
+    // region derivativeFunctionParameters
+
+    @Override
+    public double[][] derivativeFunctionParameters(double[] x) {
+        int numOfParameters = this.parameters.length;
+        double[] jacobian = new double[x.length * numOfParameters];
+        derivativeFunctionParameters(x, 0, x.length, jacobian);
+
+        double[][] result = new double[x.length][numOfParameters];
+        for (int i = 0; i < x.length; i++) {
+            System.arraycopy(jacobian, i * numOfParameters, result[i], 0, numOfParameters);
+        }
+        return result;
+    }
+
+    @Override
+    public void derivativeFunctionParameters(double[] x, int from, int to, double[] jacobian) {
+        DualWorkspace ws = workspace(true);
+        int numOfParameters = this.parameters.length;
+        for (int i = from; i < to; i++) {
+            ws.clear();
+            ws.gradient(this.function.evaluate(ws, x[i]), jacobian, (i - from) * numOfParameters);
+        }
+    }
+
+    @Override
+    public void functionAndDerivative(double[] x, int from, int to, double[] fx, double[] jacobian) {
+        DualWorkspace ws = workspace(true);
+        int numOfParameters = this.parameters.length;
+        for (int i = from; i < to; i++) {
+            ws.clear();
+            int result = this.function.evaluate(ws, x[i]);
+            fx[i - from] = ws.value(result);
+            ws.gradient(result, jacobian, (i - from) * numOfParameters);
+        }
+    }
+
+    // endregion
+}
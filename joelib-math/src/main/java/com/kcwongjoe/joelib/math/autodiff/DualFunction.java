@@ -0,0 +1,24 @@
+package com.kcwongjoe.joelib.math.autodiff;
+
+/**
+ * Model written once on dual numbers. The value and the gradient of the parameters come out of one evaluation.
+ * <p>
+ * Example of a Gaussian function f(x) = a * exp( -(x - b)^2 / (2 * c^2) ):
+ * <pre>
+ * (ws, x) -&gt; {
+ *     int z = ws.div(ws.sub(x, ws.parameter(1)), ws.parameter(2));
+ *     return ws.mul(ws.parameter(0), ws.exp(ws.mul(ws.sq(z), -0.5)));
+ * }
+ * </pre>
+ **/
+public interface DualFunction {
+
+    /**
+     * Evaluate the model on x
+     *
+     * @param ws Workspace holding the parameters, see {@link DualWorkspace#parameter(int)}
+     * @param x  x
+     * @return Return the handle of f(x) in the workspace
+     */
+    int evaluate(DualWorkspace ws, double x);
+}
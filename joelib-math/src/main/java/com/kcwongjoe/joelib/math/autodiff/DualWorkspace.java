@@ -0,0 +1,473 @@
+package com.kcwongjoe.joelib.math.autodiff;
+
+import com.kcwongjoe.joelib.math.func.GaussErrorFunction;
+
+/**
+ * Workspace of forward-mode automatic differentiation.
+ * <p>
+ * A dual number is a value with its gradient on the parameters. Dual numbers live in primitive arrays of the workspace
+ * and are referred by int handles, so an evaluation does not allocate once the workspace has grown to the size of the
+ * expression. The parameters are the first handles. {@link #clear()} releases all other dual numbers before the next
+ * evaluation.
+ * <p>
+ * A workspace is not thread-safe.
+ **/
+public class DualWorkspace {
+
+    private final int numOfParameters;
+
+    /**
+     * Value of the dual numbers in double[handle]
+     */
+    private double[] value;
+
+    /**
+     * Gradient of the dual numbers in row-major double[handle * numOfParameters]
+     */
+    private double[] gradient;
+
+    /**
+     * Number of dual numbers
+     */
+    private int size;
+
+    /**
+     * Calculate the gradient?
+     */
+    private boolean withGradient = true;
+
+    /**
+     * Constructor
+     *
+     * @param numOfParameters Number of parameters
+     */
+    public DualWorkspace(int numOfParameters) {
+        if (numOfParameters <= 0)
+            throw new IllegalArgumentException("numOfParameters (" + numOfParameters + ") must be > 0.");
+
+        this.numOfParameters = numOfParameters;
+        this.value = new double[numOfParameters + 32];
+        this.gradient = new double[this.value.length * numOfParameters];
+        this.size = numOfParameters;
+
+        // Unit gradient of the parameters
+        for (int pi = 0; pi < numOfParameters; pi++) {
+            this.gradient[pi * numOfParameters + pi] = 1;
+        }
+    }
+
+    // region parameters
+
+    /**
+     * Get the number of parameters
+     *
+     * @return Return the number of parameters
+     */
+    public int getNumOfParameters() {
+        return this.numOfParameters;
+    }
+
+    /**
+     * Set the value of the parameters. It also releases all other dual numbers.
+     *
+     * @param parameters Parameters
+     */
+    public void setParameters(double[] parameters) {
+        if (parameters.length != this.numOfParameters)
+            throw new IllegalArgumentException("Length of parameters (" + parameters.length + ") must be = " + this.numOfParameters);
+
+        System.arraycopy(parameters, 0, this.value, 0, this.numOfParameters);
+        clear();
+    }
+
+    /**
+     * Get the handle of a parameter
+     *
+     * @param index Index of the parameter
+     * @return Return the handle of the parameter
+     */
+    public int parameter(int index) {
+        if (index < 0 || index >= this.numOfParameters)
+            throw new IndexOutOfBoundsException("index (" + index + ") out of [0, " + this.numOfParameters + ").");
+
+        return index;
+    }
+
+    /**
+     * Enable or disable the gradient. Operations only calculate the value if it is disabled.
+     *
+     * @param withGradient Calculate the gradient? Default as true
+     */
+    public void setWithGradient(boolean withGradient) {
+        this.withGradient = withGradient;
+    }
+
+    /**
+     * Is the gradient calculated?
+     *
+     * @return Return true if the gradient is calculated
+     */
+    public boolean isWithGradient() {
+        return this.withGradient;
+    }
+
+    /**
+     * Release all dual numbers except the parameters
+     */
+    public void clear() {
+        this.size = this.numOfParameters;
+    }
+
+    // endregion
+
+    // region result
+
+    /**
+     * Get the value of a dual number
+     *
+     * @param handle Handle
+     * @return Return the value
+     */
+    public double value(int handle) {
+        return this.value[handle];
+    }
+
+    /**
+     * Get the derivative of a dual number on a parameter
+     *
+     * @param handle         Handle
+     * @param parameterIndex Index of the parameter
+     * @return Return the derivative
+     */
+    public double gradient(int handle, int parameterIndex) {
+        return this.gradient[handle * this.numOfParameters + parameterIndex];
+    }
+
+    /**
+     * Copy the gradient of a dual number
+     *
+     * @param handle Handle
+     * @param dest   Destination
+     * @param offset Index in dest of the derivative of the first parameter
+     */
+    public void gradient(int handle, double[] dest, int offset) {
+        System.arraycopy(this.gradient, handle * this.numOfParameters, dest, offset, this.numOfParameters);
+    }
+
+    // endregion
+
+    // region operations
+
+    /**
+     * Constant
+     *
+     * @param c Value
+     * @return Return the handle of c
+     */
+    public int constant(double c) {
+        int r = push(c);
+        int p = activeParameters();
+        int rr = r * p;
+        for (int k = 0; k < p; k++) {
+            this.gradient[rr + k] = 0;
+        }
+        return r;
+    }
+
+    /**
+     * a + b
+     *
+     * @param a Handle of a
+     * @param b Handle of b
+     * @return Return the handle of a + b
+     */
+    public int add(int a, int b) {
+        int r = push(this.value[a] + this.value[b]);
+        int p = activeParameters();
+        int ra = a * p, rb = b * p, rr = r * p;
+        for (int k = 0; k < p; k++) {
+            this.gradient[rr + k] = this.gradient[ra + k] + this.gradient[rb + k];
+        }
+        return r;
+    }
+
+    /**
+     * a + c
+     *
+     * @param a Handle of a
+     * @param c Constant
+     * @return Return the handle of a + c
+     */
+    public int add(int a, double c) {
+        return linear(a, 1, c);
+    }
+
+    /**
+     * a - b
+     *
+     * @param a Handle of a
+     * @param b Handle of b
+     * @return Return the handle of a - b
+     */
+    public int sub(int a, int b) {
+        int r = push(this.value[a] - this.value[b]);
+        int p = activeParameters();
+        int ra = a * p, rb = b * p, rr = r * p;
+        for (int k = 0; k < p; k++) {
+            this.gradient[rr + k] = this.gradient[ra + k] - this.gradient[rb + k];
+        }
+        return r;
+    }
+
+    /**
+     * a - c
+     *
+     * @param a Handle of a
+     * @param c Constant
+     * @return Return the handle of a - c
+     */
+    public int sub(int a, double c) {
+        return linear(a, 1, -c);
+    }
+
+    /**
+     * c - b
+     *
+     * @param c Constant
+     * @param b Handle of b
+     * @return Return the handle of c - b
+     */
+    public int sub(double c, int b) {
+        return linear(b, -1, c);
+    }
+
+    /**
+     * -a
+     *
+     * @param a Handle of a
+     * @return Return the handle of -a
+     */
+    public int neg(int a) {
+        return linear(a, -1, 0);
+    }
+
+    /**
+     * a * b
+     *
+     * @param a Handle of a
+     * @param b Handle of b
+     * @return Return the handle of a * b
+     */
+    public int mul(int a, int b) {
+        double va = this.value[a];
+        double vb = this.value[b];
+        int r = push(va * vb);
+        int p = activeParameters();
+        int ra = a * p, rb = b * p, rr = r * p;
+        for (int k = 0; k < p; k++) {
+            this.gradient[rr + k] = this.gradient[ra + k] * vb + va * this.gradient[rb + k];
+        }
+        return r;
+    }
+
+    /**
+     * a * c
+     *
+     * @param a Handle of a
+     * @param c Constant
+     * @return Return the handle of a * c
+     */
+    public int mul(int a, double c) {
+        return linear(a, c, 0);
+    }
+
+    /**
+     * a / b
+     *
+     * @param a Handle of a
+     * @param b Handle of b
+     * @return Return the handle of a / b
+     */
+    public int div(int a, int b) {
+        double vb = this.value[b];
+        double vr = this.value[a] / vb;
+        int r = push(vr);
+        int p = activeParameters();
+        int ra = a * p, rb = b * p, rr = r * p;
+        for (int k = 0; k < p; k++) {
+            this.gradient[rr + k] = (this.gradient[ra + k] - vr * this.gradient[rb + k]) / vb;
+        }
+        return r;
+    }
+
+    /**
+     * a / c
+     *
+     * @param a Handle of a
+     * @param c Constant
+     * @return Return the handle of a / c
+     */
+    public int div(int a, double c) {
+        return linear(a, 1 / c, 0);
+    }
+
+    /**
+     * c / b
+     *
+     * @param c Constant
+     * @param b Handle of b
+     * @return Return the handle of c / b
+     */
+    public int div(double c, int b) {
+        double vb = this.value[b];
+        double vr = c / vb;
+        return chain(b, vr, -vr / vb);
+    }
+
+    /**
+     * a^2
+     *
+     * @param a Handle of a
+     * @return Return the handle of a^2
+     */
+    public int sq(int a) {
+        double va = this.value[a];
+        return chain(a, va * va, 2 * va);
+    }
+
+    /**
+     * sqrt(a)
+     *
+     * @param a Handle of a
+     * @return Return the handle of sqrt(a)
+     */
+    public int sqrt(int a) {
+        double vr = Math.sqrt(this.value[a]);
+        return chain(a, vr, 0.5 / vr);
+    }
+
+    /**
+     * a^n
+     *
+     * @param a Handle of a
+     * @param n Exponent
+     * @return Return the handle of a^n
+     */
+    public int pow(int a, double n) {
+        double va = this.value[a];
+        return chain(a, Math.pow(va, n), n * Math.pow(va, n - 1));
+    }
+
+    /**
+     * exp(a)
+     *
+     * @param a Handle of a
+     * @return Return the handle of exp(a)
+     */
+    public int exp(int a) {
+        double vr = Math.exp(this.value[a]);
+        return chain(a, vr, vr);
+    }
+
+    /**
+     * log(a)
+     *
+     * @param a Handle of a
+     * @return Return the handle of log(a)
+     */
+    public int log(int a) {
+        double va = this.value[a];
+        return chain(a, Math.log(va), 1 / va);
+    }
+
+    /**
+     * erf(a)
+     *
+     * @param a Handle of a
+     * @return Return the handle of erf(a)
+     */
+    public int erf(int a) {
+        double va = this.value[a];
+        return chain(a, GaussErrorFunction.erf(va), GaussErrorFunction.derivative(va));
+    }
+
+    /**
+     * erfc(a)
+     *
+     * @param a Handle of a
+     * @return Return the handle of erfc(a)
+     */
+    public int erfc(int a) {
+        double va = this.value[a];
+        return chain(a, GaussErrorFunction.erfc(va), -GaussErrorFunction.derivative(va));
+    }
+
+    // endregion
+
+    /**
+     * Add a dual number of value scale * a + c
+     *
+     * @param a     Handle of a
+     * @param scale Scale
+     * @param c     Offset
+     * @return Return the handle of the result
+     */
+    private int linear(int a, double scale, double c) {
+        int r = push(scale * this.value[a] + c);
+        int p = activeParameters();
+        int ra = a * p, rr = r * p;
+        for (int k = 0; k < p; k++) {
+            this.gradient[rr + k] = scale * this.gradient[ra + k];
+        }
+        return r;
+    }
+
+    /**
+     * Add a dual number of value f(a) by the chain rule
+     *
+     * @param a          Handle of a
+     * @param value      f(a)
+     * @param derivative f'(a)
+     * @return Return the handle of f(a)
+     */
+    private int chain(int a, double value, double derivative) {
+        int r = push(value);
+        int p = activeParameters();
+        int ra = a * p, rr = r * p;
+        for (int k = 0; k < p; k++) {
+            this.gradient[rr + k] = derivative * this.gradient[ra + k];
+        }
+        return r;
+    }
+
+    /**
+     * Get the number of gradient entries to calculate per operation
+     *
+     * @return Return the number of parameters. 0 if the gradient is disabled.
+     */
+    private int activeParameters() {
+        return this.withGradient ? this.numOfParameters : 0;
+    }
+
+    /**
+     * Add a dual number. The gradient is not initialized.
+     *
+     * @param value Value
+     * @return Return the handle
+     */
+    private int push(double value) {
+        // Grow
+        if (this.size == this.value.length) {
+            double[] newValue = new double[this.value.length * 2];
+            System.arraycopy(this.value, 0, newValue, 0, this.size);
+            this.value = newValue;
+
+            double[] newGradient = new double[newValue.length * this.numOfParameters];
+            System.arraycopy(this.gradient, 0, newGradient, 0, this.size * this.numOfParameters);
+            this.gradient = newGradient;
+        }
+
+        this.value[this.size] = value;
+        return this.size++;
+    }
+}
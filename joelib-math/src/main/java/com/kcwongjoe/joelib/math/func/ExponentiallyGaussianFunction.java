@@ -46,8 +46,15 @@ public class ExponentiallyGaussianFunction {
         double factor = h * sigma / tau * sqrtPiOrder2;
 
         double sigmaOverTau = sigma / tau;
+        double z = OneOverSqrt2 * (sigmaOverTau - (x - u) / sigma);
+
+        // exp(A) * erfc(z) = exp(A - z^2) * erfcx(z) with A - z^2 = -(x - u)^2 / (2 * sigma^2), so the exp term can
+        // not overflow while the erfc term underflows
+        if (z >= 0)
+            return factor * Math.exp(-(x - u) * (x - u) / (2 * sigma * sigma)) * GaussErrorFunction.erfcx(z);
+
         double expTerm = Math.exp(sigmaOverTau * sigmaOverTau / 2 - (x - u) / tau);
-        double erfcTerm = GaussErrorFunction.erfc(OneOverSqrt2 * (sigma / tau - (x - u) / sigma));
+        double erfcTerm = GaussErrorFunction.erfc(z);
 
         return factor * expTerm * erfcTerm;
     }
@@ -76,39 +83,101 @@ public class ExponentiallyGaussianFunction {
      * Calculate the derivative of the paratmeters on x
      *
      * @param x x
-     * @return Return the derivative of a, b and c as new double[]{ df(x)/da, df(x)/db, df(x)/dc}
+     * @return Return the derivative of h, u, sigma and tau as new double[]{ df(x)/dh, df(x)/du, df(x)/dsigma, df(x)/dtau}
      */
     public double[] derivativeParameters(double x) {
-        double factor = h * sigma / tau;
-
-        double sigmaOverTau = sigma / tau;
-        double expTerm = Math.exp(sigmaOverTau * sigmaOverTau / 2 - (x - u) / tau);
-        double erfcTerm = GaussErrorFunction.erfc(OneOverSqrt2 * (sigma / tau - (x - u) / sigma));
-        double dErfcTerm = GaussErrorFunction.derivative(OneOverSqrt2 * (sigma / tau - (x - u) / sigma));
-
-        double dh = sigmaOverTau * sqrtPiOrder2 * expTerm * erfcTerm;
-        double du = factor * expTerm * sqrtPiOrder2 * (dErfcTerm * OneOverSqrt2 / sigma + erfcTerm / tau);
-        double dSigma = expTerm * sqrtPiOrder2 * (OneOverSqrt2 * factor * dErfcTerm * (1 / tau + (x - u) / (sigma * sigma)) + erfcTerm * (h / tau + sigma / (tau * tau)));
-        double dTau = -expTerm * sqrtPiOrder2 / (tau * tau) * (factor * dErfcTerm * OneOverSqrt2 * sigma + erfcTerm * (h * sigma + factor * (sigma * sigma / (2 * tau) - x + u)));
+        double[] fx = new double[1];
+        double[] result = new double[4];
+        valueAndGradient(new double[]{x}, 0, 1, fx, result);
 
-        return new double[]{dh, du, dSigma, dTau};
+        return result;
     }
 
     /**
      * Calculate the derivative of the paratmeters on x
      *
      * @param x x
-     * @return Return the derivative of a, b and c as new double[data][]{ df(x)/da, df(x)/db, df(x)/dc}
+     * @return Return the derivative of h, u, sigma and tau as new double[data][]{ df(x)/dh, df(x)/du, df(x)/dsigma, df(x)/dtau}
      */
     public double[][] derivativeParameters(double[] x) {
-        double[][] result = new double[x.length][];
+        double[] fx = new double[x.length];
+        double[] jacobian = new double[x.length * 4];
+        valueAndGradient(x, fx, jacobian);
 
+        double[][] result = new double[x.length][4];
         for (int i = 0; i < result.length; i++) {
-            result[i] = derivativeParameters(x[i]);
+            System.arraycopy(jacobian, i * 4, result[i], 0, 4);
         }
 
         return result;
     }
 
     //endregion
+
+    // region valueAndGradient
+
+    /**
+     * Calculate f(x) and the derivative of the parameters together. The exp and erfc terms are evaluated once per
+     * sample.
+     *
+     * @param x      x
+     * @param fxOut  Output f(x) in double[x.length]
+     * @param jacOut Output derivative in row-major double[x.length * 4]. The derivative of h, u, sigma and tau on x[i]
+     *               is written to jacOut[i * 4] to jacOut[i * 4 + 3].
+     */
+    public void valueAndGradient(double[] x, double[] fxOut, double[] jacOut) {
+        valueAndGradient(x, 0, x.length, fxOut, jacOut);
+    }
+
+    /**
+     * Calculate f(x) and the derivative of the parameters together. The exp and erfc terms are evaluated once per
+     * sample.
+     *
+     * @param x      x
+     * @param from   Index of the first sample, inclusive
+     * @param to     Index of the last sample, exclusive
+     * @param fxOut  Output f(x) in double[to - from]
+     * @param jacOut Output derivative in row-major double[(to - from) * 4]. The derivative of h, u, sigma and tau on
+     *               x[i] is written to jacOut[(i - from) * 4] to jacOut[(i - from) * 4 + 3].
+     */
+    public void valueAndGradient(double[] x, int from, int to, double[] fxOut, double[] jacOut) {
+        // f = factor * expTerm * erfcTerm
+        double sigmaOverTau = sigma / tau;
+        double factor = h * sigmaOverTau * sqrtPiOrder2;
+        double oneOverTau = 1 / tau;
+        double oneOverSigma = 1 / sigma;
+        double oneOverSigma2 = oneOverSigma * oneOverSigma;
+        double oneOverTau2 = oneOverTau * oneOverTau;
+        double halfSigmaOverTau2 = sigmaOverTau * sigmaOverTau / 2;
+        double twoOverSqrtPi = 2 / Math.sqrt(Math.PI);
+
+        for (int i = from; i < to; i++) {
+            double xu = x[i] - u;
+            double z = OneOverSqrt2 * (sigmaOverTau - xu * oneOverSigma);
+
+            // expErfc = expTerm * erfc(z), expDErfc = expTerm * d(erf(z))/dz
+            // For z >= 0, they are taken as exp(-xu^2 / (2 * sigma^2)) * erfcx(z), which can not overflow.
+            double expErfc;
+            double expDErfc;
+            if (z >= 0) {
+                double gaussian = Math.exp(-xu * xu * oneOverSigma2 / 2);
+                expErfc = gaussian * GaussErrorFunction.erfcx(z);
+                expDErfc = gaussian * twoOverSqrtPi;
+            } else {
+                double expTerm = Math.exp(halfSigmaOverTau2 - xu * oneOverTau);
+                expErfc = expTerm * GaussErrorFunction.erfc(z);
+                expDErfc = expTerm * GaussErrorFunction.derivative(z);
+            }
+            double expDErfcOverSqrt2 = expDErfc * OneOverSqrt2;
+
+            int row = (i - from) * 4;
+            fxOut[i - from] = factor * expErfc;
+            jacOut[row] = sigmaOverTau * sqrtPiOrder2 * expErfc;
+            jacOut[row + 1] = factor * (expErfc * oneOverTau - expDErfcOverSqrt2 * oneOverSigma);
+            jacOut[row + 2] = factor * (expErfc * (oneOverSigma + sigma * oneOverTau2) - expDErfcOverSqrt2 * (oneOverTau + xu * oneOverSigma2));
+            jacOut[row + 3] = factor * (expErfc * (xu * oneOverTau2 - sigma * sigma * oneOverTau2 * oneOverTau - oneOverTau) + expDErfcOverSqrt2 * sigma * oneOverTau2);
+        }
+    }
+
+    //endregion
 }
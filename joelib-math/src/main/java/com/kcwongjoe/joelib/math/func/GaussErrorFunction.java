@@ -3,10 +3,84 @@ package com.kcwongjoe.joelib.math.func;
 /**
  * Gauss error functio, erf(x) = 2 / sqrt(pi) * Integration(0,z,exp(-t^2) dt).
  * <p>
- * It is solved by the taylor series.
+ * The static {@link #erf(double)}, {@link #erfc(double)} and {@link #erfcx(double)} are solved by the rational
+ * approximations of W. J. Cody, "Rational Chebyshev approximations for the error function", Math. Comp. 23 (1969)
+ * 631-637. They are accurate to a few ulp and erfc(x) keeps its relative accuracy in the tail until it becomes
+ * subnormal at x = 26.5.
+ * <p>
+ * The static functions are allocation-free. The array versions run the same kernel in a plain loop.
+ * <p>
+ * The instance functions delegate to them. Only the static functions with epsilon are solved by the taylor series,
+ * which loses accuracy for |x| &gt; 3.
  */
 public class GaussErrorFunction {
 
+    // region Cody coefficients
+
+    /**
+     * |x| &lt;= 0.46875: erf(x) = x * A(x^2) / B(x^2)
+     */
+    private static final double THRESHOLD = 0.46875;
+    private static final double A0 = 3.16112374387056560e00;
+    private static final double A1 = 1.13864154151050156e02;
+    private static final double A2 = 3.77485237685302021e02;
+    private static final double A3 = 3.20937758913846947e03;
+    private static final double A4 = 1.85777706184603153e-1;
+    private static final double B0 = 2.36012909523441209e01;
+    private static final double B1 = 2.44024637934444173e02;
+    private static final double B2 = 1.28261652607737228e03;
+    private static final double B3 = 2.84423683343917062e03;
+
+    /**
+     * 0.46875 &lt; |x| &lt;= 4: erfc(x) = exp(-x^2) * C(x) / D(x)
+     */
+    private static final double C0 = 5.64188496988670089e-1;
+    private static final double C1 = 8.88314979438837594e00;
+    private static final double C2 = 6.61191906371416295e01;
+    private static final double C3 = 2.98635138197400131e02;
+    private static final double C4 = 8.81952221241769090e02;
+    private static final double C5 = 1.71204761263407058e03;
+    private static final double C6 = 2.05107837782607147e03;
+    private static final double C7 = 1.23033935479799725e03;
+    private static final double C8 = 2.15311535474403846e-8;
+    private static final double D0 = 1.57449261107098347e01;
+    private static final double D1 = 1.17693950891312499e02;
+    private static final double D2 = 5.37181101862009858e02;
+    private static final double D3 = 1.62138957456669019e03;
+    private static final double D4 = 3.29079923573345963e03;
+    private static final double D5 = 4.36261909014324716e03;
+    private static final double D6 = 3.43936767414372164e03;
+    private static final double D7 = 1.23033935480374942e03;
+
+    /**
+     * |x| &gt; 4: erfc(x) = exp(-x^2) / x * (1 / sqrt(pi) - P(1/x^2) / Q(1/x^2) / x^2)
+     */
+    private static final double P0 = 3.05326634961232344e-1;
+    private static final double P1 = 3.60344899949804439e-1;
+    private static final double P2 = 1.25781726111229246e-1;
+    private static final double P3 = 1.60837851487422766e-2;
+    private static final double P4 = 6.58749161529837803e-4;
+    private static final double P5 = 1.63153871373020978e-2;
+    private static final double Q0 = 2.56852019228982242e00;
+    private static final double Q1 = 1.87295284992346725e00;
+    private static final double Q2 = 5.27905102951428412e-1;
+    private static final double Q3 = 6.05183413124413191e-2;
+    private static final double Q4 = 2.33520497626869185e-3;
+
+    private static final double ONE_OVER_SQRT_PI = 5.6418958354775628695e-1;
+
+    /**
+     * erfc(x) underflows to 0 for x &gt;= 27.3
+     */
+    private static final double ERFC_UNDERFLOW = 27.3;
+
+    /**
+     * erfcx(x) overflows to Infinity for x &lt;= -26.628
+     */
+    private static final double ERFCX_OVERFLOW = 26.628;
+
+    // endregion
+
     private double epsilon = 1e-15;
     private int maxIterations = 10000;
 
@@ -22,7 +96,10 @@ public class GaussErrorFunction {
      * 
      * @param epsilon       Stop if (nth series term) / result &lt; epsilon
      * @param maxIterations Maximum number of iteration
+     * @deprecated The instance functions are solved by the rational approximations and do not use the taylor series.
+     * Use {@link #erf(double, double, int)} for the taylor series.
      */
+    @Deprecated
     public GaussErrorFunction(double epsilon, int maxIterations) {
         setEpsilon(epsilon);
         setMaxIterations(maxIterations);
@@ -34,7 +111,10 @@ public class GaussErrorFunction {
      * Set Epsilon of the taylor series
      * 
      * @param epsilon Stop if (nth series term) / result &lt; epsilon
+     * @deprecated The instance functions are solved by the rational approximations and do not use the taylor series.
+     * Use {@link #erf(double, double, int)} for the taylor series.
      */
+    @Deprecated
     public void setEpsilon(double epsilon) {
         if (epsilon <= 0)
             epsilon = 2 * Double.MIN_VALUE;
@@ -46,7 +126,10 @@ public class GaussErrorFunction {
      * Return the epsilon
      * 
      * @return Return the epsilon
+     * @deprecated The instance functions are solved by the rational approximations and do not use the taylor series.
+     * Use {@link #erf(double, double, int)} for the taylor series.
      */
+    @Deprecated
     public double getEpsilon() {
         return this.epsilon;
     }
@@ -55,7 +138,10 @@ public class GaussErrorFunction {
      * Set Maximum iterations of the taylor series
      * 
      * @param maxIterations Maximum number of iteration
+     * @deprecated The instance functions are solved by the rational approximations and do not use the taylor series.
+     * Use {@link #erf(double, double, int)} for the taylor series.
      */
+    @Deprecated
     public void setMaxIterations(int maxIterations) {
         if (maxIterations <= 0)
             throw new IllegalArgumentException("maxIterations (" + maxIterations + ") must be > 0.");
@@ -67,7 +153,10 @@ public class GaussErrorFunction {
      * Return the Maximum iterations of the taylor series
      * 
      * @return Return the Maximum iterations of the taylor series
+     * @deprecated The instance functions are solved by the rational approximations and do not use the taylor series.
+     * Use {@link #erf(double, double, int)} for the taylor series.
      */
+    @Deprecated
     public double getMaxIterations() {
         return this.maxIterations;
     }
@@ -81,29 +170,7 @@ public class GaussErrorFunction {
      * @return Return erf(x)
      */
     public double calculate(double x) {
-        double result = x;
-
-        double z2k = 1;
-        int n = 1;
-        double partialTerm = x;
-        int iter = 0;
-
-        double x2 = x * x;
-
-        // Calculate taylor series
-        while (Math.abs(partialTerm / result) > this.epsilon && iter < this.maxIterations) {
-
-            z2k *= -x2 / n;
-            partialTerm = x / (2 * n + 1) * z2k;
-            result += partialTerm;
-
-            n++;
-            iter++;
-        }
-
-        result *= 2 / Math.sqrt(Math.PI);
-
-        return result;
+        return erf(x);
     }
 
     /**
@@ -113,7 +180,7 @@ public class GaussErrorFunction {
      * @return Retrun the erfc(x)
      */
     public double calculateComplementary(double x){
-        return 1 - calculate(x);
+        return erfc(x);
     }
 
     /**
@@ -132,7 +199,12 @@ public class GaussErrorFunction {
      * @return Return erf(x)
      */
     public static double erf(double x) {
-        return erf(x, 1e-15, 10000);
+        double y = Math.abs(x);
+        if (y <= THRESHOLD)
+            return smallErf(x);
+
+        double result = (0.5 - expMinusSquare(y) * scaledErfc(y)) + 0.5;
+        return x < 0 ? -result : result;
     }
 
     /**
@@ -144,9 +216,26 @@ public class GaussErrorFunction {
      * @return Retrun erf(x)
      */
     public static double erf(double x, double epsilon, int maxIterations) {
+        if (maxIterations <= 0)
+            throw new IllegalArgumentException("maxIterations (" + maxIterations + ") must be > 0.");
+        if (epsilon <= 0)
+            epsilon = 2 * Double.MIN_VALUE;
+
+        return series(x, epsilon, maxIterations);
+    }
+
+    /**
+     * Gauss error function of an array
+     *
+     * @param x   x
+     * @param out Output erf(x) in double[x.length]. It can be x.
+     */
+    public static void erf(double[] x, double[] out) {
+        checkArrays(x, out);
 
-        GaussErrorFunction erf = new GaussErrorFunction(epsilon, maxIterations);
-        return erf.calculate(x);
+        for (int i = 0; i < x.length; i++) {
+            out[i] = erf(x[i]);
+        }
     }
 
     /**
@@ -156,18 +245,161 @@ public class GaussErrorFunction {
      * @return Retrun the erfc(x)
      */
     public static double erfc(double x) {
-        return 1 - erf(x);
+        double y = Math.abs(x);
+        if (y <= THRESHOLD)
+            return 1 - smallErf(x);
+
+        double result = expMinusSquare(y) * scaledErfc(y);
+        return x < 0 ? 2 - result : result;
     }
 
     /**
-     * The complementary error function
+     * The complementary error function of an array
+     *
+     * @param x   x
+     * @param out Output erfc(x) in double[x.length]. It can be x.
+     */
+    public static void erfc(double[] x, double[] out) {
+        checkArrays(x, out);
+
+        for (int i = 0; i < x.length; i++) {
+            out[i] = erfc(x[i]);
+        }
+    }
+
+    /**
+     * The scaled complementary error function, erfcx(x) = exp(x^2) * erfc(x).
+     * <p>
+     * It is about 1 / (sqrt(pi) * x) for large x, so exp(-x^2) and erfc(x) can be combined without underflow. It
+     * overflows to Infinity for x &lt; -26.6.
      *
      * @param x x
+     * @return Return erfcx(x)
+     */
+    public static double erfcx(double x) {
+        double y = Math.abs(x);
+        if (y <= THRESHOLD)
+            return Math.exp(x * x) * (1 - smallErf(x));
+
+        if (x > 0)
+            return scaledErfc(y);
+
+        // erfcx(-y) = 2 * exp(y^2) - erfcx(y)
+        if (y >= ERFCX_OVERFLOW)
+            return Double.POSITIVE_INFINITY;
+        double yRounded = Math.floor(y * 16) / 16;
+        double delta = (y - yRounded) * (y + yRounded);
+        double expSquare = Math.exp(yRounded * yRounded) * Math.exp(delta);
+        return (expSquare + expSquare) - scaledErfc(y);
+    }
+
+    /**
+     * The scaled complementary error function of an array
+     *
+     * @param x   x
+     * @param out Output erfcx(x) in double[x.length]. It can be x.
+     */
+    public static void erfcx(double[] x, double[] out) {
+        checkArrays(x, out);
+
+        for (int i = 0; i < x.length; i++) {
+            out[i] = erfcx(x[i]);
+        }
+    }
+
+    /**
+     * Check the input and output arrays
+     *
+     * @param x   x
+     * @param out Output array
+     */
+    private static void checkArrays(double[] x, double[] out) {
+        if (x == null)
+            throw new NullPointerException("x can't not be null");
+        if (out == null)
+            throw new NullPointerException("out can't not be null");
+        if (out.length < x.length)
+            throw new IllegalArgumentException("Length of out (" + out.length + ") must be >= " + x.length);
+    }
+
+    /**
+     * Taylor series of erf(x)
+     *
+     * @param x             x
      * @param epsilon       Stop if (nth series term) / result &lt; epsilon
      * @param maxIterations Maximum number of iteration
-     * @return Retrun the erfc(x)
+     * @return Return erf(x)
+     */
+    private static double series(double x, double epsilon, int maxIterations) {
+        double result = x;
+
+        double z2k = 1;
+        int n = 1;
+        double partialTerm = x;
+        int iter = 0;
+
+        double x2 = x * x;
+
+        // Calculate taylor series
+        while (Math.abs(partialTerm / result) > epsilon && iter < maxIterations) {
+
+            z2k *= -x2 / n;
+            partialTerm = x / (2 * n + 1) * z2k;
+            result += partialTerm;
+
+            n++;
+            iter++;
+        }
+
+        result *= 2 / Math.sqrt(Math.PI);
+
+        return result;
+    }
+
+    /**
+     * erf(x) for |x| &lt;= 0.46875
+     *
+     * @param x x
+     * @return Return erf(x)
+     */
+    private static double smallErf(double x) {
+        double x2 = x * x;
+        double numerator = (((A4 * x2 + A0) * x2 + A1) * x2 + A2) * x2 + A3;
+        double denominator = (((x2 + B0) * x2 + B1) * x2 + B2) * x2 + B3;
+        return x * numerator / denominator;
+    }
+
+    /**
+     * erfcx(y) for y &gt; 0.46875. NaN is returned as NaN.
+     *
+     * @param y y
+     * @return Return erfcx(y)
      */
-    public static double erfc(double x, double epsilon, int maxIterations) {
-        return 1 - erf(x, epsilon, maxIterations);
+    private static double scaledErfc(double y) {
+        if (y <= 4) {
+            double numerator = (((((((C8 * y + C0) * y + C1) * y + C2) * y + C3) * y + C4) * y + C5) * y + C6) * y + C7;
+            double denominator = (((((((y + D0) * y + D1) * y + D2) * y + D3) * y + D4) * y + D5) * y + D6) * y + D7;
+            return numerator / denominator;
+        }
+
+        double z = 1 / (y * y);
+        double numerator = ((((P5 * z + P0) * z + P1) * z + P2) * z + P3) * z + P4;
+        double denominator = ((((z + Q0) * z + Q1) * z + Q2) * z + Q3) * z + Q4;
+        return (ONE_OVER_SQRT_PI - z * numerator / denominator) / y;
+    }
+
+    /**
+     * exp(-y^2) with y^2 split into an exact part, so the rounding error of y^2 is not amplified
+     *
+     * @param y y
+     * @return Return exp(-y^2)
+     */
+    private static double expMinusSquare(double y) {
+        if (y >= ERFC_UNDERFLOW)
+            return 0;
+
+        double yRounded = Math.floor(y * 16) / 16;
+        double delta = (y - yRounded) * (y + yRounded);
+        return Math.exp(-yRounded * yRounded) * Math.exp(-delta);
     }
 }
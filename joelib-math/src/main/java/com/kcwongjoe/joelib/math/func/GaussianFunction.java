@@ -121,4 +121,47 @@ public class GaussianFunction {
     }
 
     //endregion
+
+    // region valueAndGradient
+
+    /**
+     * Calculate f(x) and the derivative of the parameters together. Math.exp is evaluated once per sample.
+     *
+     * @param x      x
+     * @param fxOut  Output f(x) in double[x.length]
+     * @param jacOut Output derivative in row-major double[x.length * 3]. The derivative of a, b and c on x[i] is
+     *               written to jacOut[i * 3], jacOut[i * 3 + 1] and jacOut[i * 3 + 2].
+     */
+    public void valueAndGradient(double[] x, double[] fxOut, double[] jacOut) {
+        valueAndGradient(x, 0, x.length, fxOut, jacOut);
+    }
+
+    /**
+     * Calculate f(x) and the derivative of the parameters together. Math.exp is evaluated once per sample.
+     *
+     * @param x      x
+     * @param from   Index of the first sample, inclusive
+     * @param to     Index of the last sample, exclusive
+     * @param fxOut  Output f(x) in double[to - from]
+     * @param jacOut Output derivative in row-major double[(to - from) * 3]. The derivative of a, b and c on x[i] is
+     *               written to jacOut[(i - from) * 3], jacOut[(i - from) * 3 + 1] and jacOut[(i - from) * 3 + 2].
+     */
+    public void valueAndGradient(double[] x, int from, int to, double[] fxOut, double[] jacOut) {
+        double oneOverC2 = 1 / (c * c);
+        double oneOverC = 1 / c;
+
+        for (int i = from; i < to; i++) {
+            double xb = x[i] - b;
+            double expTerm = Math.exp(-0.5 * xb * xb * oneOverC2);
+            double fx = a * expTerm;
+
+            int row = (i - from) * 3;
+            fxOut[i - from] = fx;
+            jacOut[row] = expTerm;
+            jacOut[row + 1] = xb * oneOverC2 * fx;
+            jacOut[row + 2] = xb * xb * oneOverC2 * oneOverC * fx;
+        }
+    }
+
+    //endregion
 }
@@ -0,0 +1,370 @@
+package com.kcwongjoe.joelib.math.func;
+
+import com.kcwongjoe.joelib.math.sgd.SparseObjectiveFunction;
+
+/**
+ * Sum of peaks, e.g. the overlapping peaks of a chromatogram.
+ * <p>
+ * A peak is a {@link GaussianFunction} with parameters (a, b, c) or an {@link ExponentiallyGaussianFunction} with
+ * parameters (h, u, sigma, tau). The parameters of all peaks are concatenated in peak order.
+ * <p>
+ * A peak is only evaluated inside its window: b &plusmn; cutoff * c for a Gaussian peak, and u - cutoff * sigma to
+ * u + cutoff * sigma + cutoff^2 / 2 * tau for an exponentially Gaussian peak, whose tail decays with tau. Outside the
+ * window, the peak and its derivative are taken as 0, so df(x)/dtheta is sparse and is given to the solver in CSR
+ * format.
+ **/
+public class MultiPeakFunction implements SparseObjectiveFunction {
+
+    /**
+     * Gaussian peak with parameters (a, b, c)
+     */
+    public static final int GAUSSIAN = 0;
+
+    /**
+     * Exponentially Gaussian peak with parameters (h, u, sigma, tau)
+     */
+    public static final int EXPONENTIALLY_GAUSSIAN = 1;
+
+    private final int[] peakTypes;
+    private final int[] offsets;
+    private final double[] parameters;
+
+    /**
+     * Number of widths of the window around a peak. Default as 5
+     */
+    private double cutoff = 5;
+
+    // Peaks
+    private final GaussianFunction[] gaussians;
+    private final ExponentiallyGaussianFunction[] exponentiallyGaussians;
+    private final double[] lowerBound;
+    private final double[] upperBound;
+    private int maxNonZerosPerSample;
+
+    // Scratch arrays of each thread, as the blocks may be evaluated in parallel
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Constructor
+     *
+     * @param peakTypes  Type of each peak, GAUSSIAN or EXPONENTIALLY_GAUSSIAN
+     * @param parameters Initial parameters of all peaks, concatenated in peak order
+     */
+    public MultiPeakFunction(int[] peakTypes, double[] parameters) {
+        // Throw Exception
+        if (peakTypes == null)
+            throw new NullPointerException("peakTypes can't not be null");
+        if (parameters == null)
+            throw new NullPointerException("parameters can't not be null");
+
+        int numOfPeaks = peakTypes.length;
+        this.peakTypes = peakTypes.clone();
+        this.offsets = new int[numOfPeaks];
+        this.gaussians = new GaussianFunction[numOfPeaks];
+        this.exponentiallyGaussians = new ExponentiallyGaussianFunction[numOfPeaks];
+        this.lowerBound = new double[numOfPeaks];
+        this.upperBound = new double[numOfPeaks];
+
+        int numOfParameters = 0;
+        for (int k = 0; k < numOfPeaks; k++) {
+            this.offsets[k] = numOfParameters;
+            if (peakTypes[k] == GAUSSIAN) {
+                this.gaussians[k] = new GaussianFunction(1, 0, 1);
+                numOfParameters += 3;
+            } else if (peakTypes[k] == EXPONENTIALLY_GAUSSIAN) {
+                this.exponentiallyGaussians[k] = new ExponentiallyGaussianFunction(1, 0, 1, 1);
+                numOfParameters += 4;
+            } else {
+                throw new IllegalArgumentException("peakTypes[" + k + "] must be GAUSSIAN or EXPONENTIALLY_GAUSSIAN");
+            }
+        }
+
+        if (parameters.length != numOfParameters)
+            throw new IllegalArgumentException("Length of parameters (" + parameters.length + ") must be = " + numOfParameters);
+
+        this.parameters = new double[numOfParameters];
+        setParameter(parameters);
+    }
+
+    // region Getter and Setter
+
+    /**
+     * Get the number of peaks
+     *
+     * @return Return the number of peaks
+     */
+    public int getNumOfPeaks() {
+        return this.peakTypes.length;
+    }
+
+    /**
+     * Get the type of a peak
+     *
+     * @param index Index of the peak
+     * @return Return GAUSSIAN or EXPONENTIALLY_GAUSSIAN
+     */
+    public int getPeakType(int index) {
+        return this.peakTypes[index];
+    }
+
+    /**
+     * Get the index of the first parameter of a peak
+     *
+     * @param index Index of the peak
+     * @return Return the index of the first parameter
+     */
+    public int getParameterOffset(int index) {
+        return this.offsets[index];
+    }
+
+    /**
+     * Set the window size of the peaks
+     *
+     * @param cutoff Number of widths (c or sigma) around a peak to be evaluated. Default as 5
+     */
+    public void setCutoff(double cutoff) {
+        if (!(cutoff > 0))
+            throw new IllegalArgumentException("cutoff (" + cutoff + ") must be > 0.");
+
+        this.cutoff = cutoff;
+        updateWindows();
+    }
+
+    /**
+     * Get the window size of the peaks
+     *
+     * @return Return the number of widths around a peak to be evaluated
+     */
+    public double getCutoff() {
+        return this.cutoff;
+    }
+
+    @Override
+    public void setParameter(double[] parameters) {
+        if (parameters.length != this.parameters.length)
+            throw new IllegalArgumentException("Length of parameters (" + parameters.length + ") must be = " + this.parameters.length);
+
+        System.arraycopy(parameters, 0, this.parameters, 0, parameters.length);
+
+        // Update the peaks
+        for (int k = 0; k < this.peakTypes.length; k++) {
+            int offset = this.offsets[k];
+            if (this.peakTypes[k] == GAUSSIAN) {
+                GaussianFunction gaussian = this.gaussians[k];
+                gaussian.a = parameters[offset];
+                gaussian.b = parameters[offset + 1];
+                gaussian.c = parameters[offset + 2];
+            } else {
+                ExponentiallyGaussianFunction exponentiallyGaussian = this.exponentiallyGaussians[k];
+                exponentiallyGaussian.h = parameters[offset];
+                exponentiallyGaussian.u = parameters[offset + 1];
+                exponentiallyGaussian.sigma = parameters[offset + 2];
+                exponentiallyGaussian.tau = parameters[offset + 3];
+            }
+        }
+        updateWindows();
+    }
+
+    @Override
+    public double[] getParameter() {
+        return this.parameters;
+    }
+
+    // endregion
+
+    /**
+     * Update the window of the peaks
+     */
+    private void updateWindows() {
+        for (int k = 0; k < this.peakTypes.length; k++) {
+            int offset = this.offsets[k];
+            double center = this.parameters[offset + 1];
+            double width = this.cutoff * Math.abs(this.parameters[offset + 2]);
+
+            this.lowerBound[k] = center - width;
+            this.upperBound[k] = center + width;
+            if (this.peakTypes[k] == EXPONENTIALLY_GAUSSIAN)
+                this.upperBound[k] += this.cutoff * this.cutoff / 2 * Math.abs(this.parameters[offset + 3]);
+        }
+
+        // Max number of parameters of the overlapping windows. The max overlap is at the lower bound of a window.
+        this.maxNonZerosPerSample = 0;
+        for (int k = 0; k < this.peakTypes.length; k++) {
+            int nonZeros = 0;
+            for (int j = 0; j < this.peakTypes.length; j++) {
+                if (inWindow(j, this.lowerBound[k]))
+                    nonZeros += numOfPeakParameters(j);
+            }
+            this.maxNonZerosPerSample = Math.max(this.maxNonZerosPerSample, nonZeros);
+        }
+    }
+
+    /**
+     * Get the number of parameters of a peak
+     *
+     * @param k Index of the peak
+     * @return Return 3 for a Gaussian peak, 4 for an exponentially Gaussian peak
+     */
+    private int numOfPeakParameters(int k) {
+        return this.peakTypes[k] == GAUSSIAN ? 3 : 4;
+    }
+
+    /**
+     * Is x inside the window of a peak?
+     *
+     * @param k Index of the peak
+     * @param x x
+     * @return Return true if the peak is evaluated on x
+     */
+    private boolean inWindow(int k, double x) {
+        return !(x < this.lowerBound[k] || x > this.upperBound[k]);
+    }
+
+    /**
+     * Calculate a peak and its derivative on x[i]
+     *
+     * @param k        Index of the peak
+     * @param x        x
+     * @param i        Index of the sample
+     * @param fx       Output f(x) in double[1]
+     * @param jacobian Output derivative of the peak parameters in double[4]
+     * @return Return the number of parameters of the peak
+     */
+    private int valueAndGradient(int k, double[] x, int i, double[] fx, double[] jacobian) {
+        if (this.peakTypes[k] == GAUSSIAN) {
+            this.gaussians[k].valueAndGradient(x, i, i + 1, fx, jacobian);
+            return 3;
+        } else {
+            this.exponentiallyGaussians[k].valueAndGradient(x, i, i + 1, fx, jacobian);
+            return 4;
+        }
+    }
+
+    // region function
+
+    @Override
+    public double[] function(double[] x) {
+        double[] fx = new double[x.length];
+        function(x, 0, x.length, fx);
+        return fx;
+    }
+
+    @Override
+    public void function(double[] x, int from, int to, double[] fx) {
+        for (int i = from; i < to; i++) {
+            double xi = x[i];
+            double sum = 0;
+            for (int k = 0; k < this.peakTypes.length; k++) {
+                if (!inWindow(k, xi))
+                    continue;
+
+                sum += this.peakTypes[k] == GAUSSIAN ? this.gaussians[k].calculate(xi) : this.exponentiallyGaussians[k].calculate(xi);
+            }
+            fx[i - from] = sum;
+        }
+    }
+
+    // endregion
+
+    // region derivativeFunctionParameters
+
+    @Override
+    public double[][] derivativeFunctionParameters(double[] x) {
+        int numOfParameters = this.parameters.length;
+        double[] jacobian = new double[x.length * numOfParameters];
+        derivativeFunctionParameters(x, 0, x.length, jacobian);
+
+        double[][] result = new double[x.length][numOfParameters];
+        for (int i = 0; i < x.length; i++) {
+            System.arraycopy(jacobian, i * numOfParameters, result[i], 0, numOfParameters);
+        }
+        return result;
+    }
+
+    @Override
+    public void derivativeFunctionParameters(double[] x, int from, int to, double[] jacobian) {
+        functionAndDerivative(x, from, to, this.workspaces.get().fx(to - from), jacobian);
+    }
+
+    @Override
+    public void functionAndDerivative(double[] x, int from, int to, double[] fx, double[] jacobian) {
+        int numOfParameters = this.parameters.length;
+        Workspace ws = this.workspaces.get();
+        double[] peakFx = ws.peakFx;
+        double[] peakJacobian = ws.peakJacobian;
+
+        for (int i = from; i < to; i++) {
+            int row = (i - from) * numOfParameters;
+            for (int pi = 0; pi < numOfParameters; pi++) {
+                jacobian[row + pi] = 0;
+            }
+
+            double sum = 0;
+            for (int k = 0; k < this.peakTypes.length; k++) {
+                if (!inWindow(k, x[i]))
+                    continue;
+
+                int n = valueAndGradient(k, x, i, peakFx, peakJacobian);
+                sum += peakFx[0];
+                System.arraycopy(peakJacobian, 0, jacobian, row + this.offsets[k], n);
+            }
+            fx[i - from] = sum;
+        }
+    }
+
+    @Override
+    public int getMaxNonZerosPerSample() {
+        return this.maxNonZerosPerSample;
+    }
+
+    @Override
+    public void functionAndSparseDerivative(double[] x, int from, int to, double[] fx, int[] rowStart, int[] columnIndex, double[] values) {
+        Workspace ws = this.workspaces.get();
+        double[] peakFx = ws.peakFx;
+        double[] peakJacobian = ws.peakJacobian;
+
+        int entry = 0;
+        rowStart[0] = 0;
+        for (int i = from; i < to; i++) {
+            double sum = 0;
+            for (int k = 0; k < this.peakTypes.length; k++) {
+                if (!inWindow(k, x[i]))
+                    continue;
+
+                int n = valueAndGradient(k, x, i, peakFx, peakJacobian);
+                sum += peakFx[0];
+                int offset = this.offsets[k];
+                for (int j = 0; j < n; j++) {
+                    columnIndex[entry] = offset + j;
+                    values[entry] = peakJacobian[j];
+                    entry++;
+                }
+            }
+            fx[i - from] = sum;
+            rowStart[i - from + 1] = entry;
+        }
+    }
+
+    // endregion
+
+    /**
+     * Scratch arrays of a thread
+     */
+    private static final class Workspace {
+        private final double[] peakFx = new double[1];
+        private final double[] peakJacobian = new double[4];
+        private double[] fx = new double[0];
+
+        /**
+         * Get the f(x) buffer, grown if it is too small.
+         *
+         * @param length Number of samples
+         * @return Return the buffer
+         */
+        private double[] fx(int length) {
+            if (this.fx.length < length)
+                this.fx = new double[length];
+            return this.fx;
+        }
+    }
+}
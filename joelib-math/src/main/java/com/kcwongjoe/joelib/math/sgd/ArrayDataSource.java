@@ -0,0 +1,56 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * {@link DataSource} on arrays. {@link StochasticGradientDescent} uses the arrays directly without copying.
+ **/
+public class ArrayDataSource implements DataSource {
+
+    private final double[] x;
+    private final double[] y;
+
+    /**
+     * Constructor
+     *
+     * @param x Data x
+     * @param y Data y
+     */
+    public ArrayDataSource(double[] x, double[] y) {
+        // Throw Exception
+        if (x == null || y == null)
+            throw new NullPointerException("x and y can't not be null");
+        if (x.length != y.length)
+            throw new IllegalArgumentException("The length of x (" + x.length + ") must be equal to the length of y (" + y.length + ").");
+
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Get data x
+     *
+     * @return Return data x
+     */
+    public double[] getX() {
+        return this.x;
+    }
+
+    /**
+     * Get data y
+     *
+     * @return Return data y
+     */
+    public double[] getY() {
+        return this.y;
+    }
+
+    @Override
+    public long size() {
+        return this.x.length;
+    }
+
+    @Override
+    public void read(long from, int length, double[] x, double[] y) {
+        System.arraycopy(this.x, Math.toIntExact(from), x, 0, length);
+        System.arraycopy(this.y, Math.toIntExact(from), y, 0, length);
+    }
+}
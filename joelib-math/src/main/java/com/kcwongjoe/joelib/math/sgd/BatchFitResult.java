@@ -0,0 +1,90 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Result of {@link BatchFitter}
+ * <p>
+ * Parameters are stored as struct-of-arrays, i.e. the same parameter of all problems is contiguous.
+ **/
+public class BatchFitResult {
+
+    private final double[][] parameters;
+    private final double[] losses;
+
+    /**
+     * Constructor
+     *
+     * @param parameters Optimized parameters in double[parameter][problem]
+     * @param losses     Final mean loss of each problem
+     */
+    public BatchFitResult(double[][] parameters, double[] losses) {
+        this.parameters = parameters;
+        this.losses = losses;
+    }
+
+    /**
+     * Get the number of problems
+     *
+     * @return Return the number of problems
+     */
+    public int getNumOfProblems() {
+        return this.losses.length;
+    }
+
+    /**
+     * Get the number of parameters
+     *
+     * @return Return the number of parameters
+     */
+    public int getNumOfParameters() {
+        return this.parameters.length;
+    }
+
+    /**
+     * Get a parameter of all problems
+     *
+     * @param parameterIndex Index of the parameter
+     * @return Return the parameter in double[problem]
+     */
+    public double[] getParameter(int parameterIndex) {
+        return this.parameters[parameterIndex];
+    }
+
+    /**
+     * Get the optimized parameters of a problem
+     *
+     * @param problemIndex Index of the problem
+     * @return Return the parameters in double[parameter]
+     */
+    public double[] getParameters(int problemIndex) {
+        double[] result = new double[this.parameters.length];
+        for (int pi = 0; pi < this.parameters.length; pi++) {
+            result[pi] = this.parameters[pi][problemIndex];
+        }
+        return result;
+    }
+
+    /**
+     * Get the optimized parameters of all problems
+     *
+     * @return Return the parameters in double[problem][parameter]
+     */
+    public double[][] getParameters() {
+        double[][] result = new double[this.losses.length][this.parameters.length];
+        for (int pi = 0; pi < this.parameters.length; pi++) {
+            double[] parameter = this.parameters[pi];
+            for (int k = 0; k < parameter.length; k++) {
+                result[k][pi] = parameter[k];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the final mean loss of all problems
+     *
+     * @return Return the losses in double[problem]
+     */
+    public double[] getLosses() {
+        return this.losses;
+    }
+}
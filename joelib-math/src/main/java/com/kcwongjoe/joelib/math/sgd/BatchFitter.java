@@ -0,0 +1,220 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fit many independent small problems of the same model, e.g. one peak per spectrum.
+ * <p>
+ * Each worker owns one {@link LevenbergMarquardt} copied from the template solver and one objective function created
+ * by the {@link ObjectiveFunctionFactory}, and reuses them for all problems it takes. Problems are handed out in
+ * chunks, so the setup cost is paid once per worker instead of once per fit.
+ * <p>
+ * The problems are not solved in lockstep. Each worker fits its problems one after another with an ordinary
+ * Levenberg-Marquardt solve on its reused workspace. An {@link ObjectiveFunction} holds a
+ * single parameter set, so a batched update would still evaluate the problems one by one. Struct-of-arrays storage is
+ * used for the parameters in {@link BatchFitResult}, not for the solver state.
+ **/
+public class BatchFitter {
+
+    /**
+     * Number of problems a worker takes at a time
+     */
+    private static final int CHUNK_SIZE = 16;
+
+    private final LevenbergMarquardt solver;
+    private final ObjectiveFunctionFactory objectiveFunctionFactory;
+
+    /**
+     * Thread pool. Set it as null to use the common pool.
+     */
+    private ExecutorService executorService = null;
+
+    /**
+     * Number of workers. Default as the number of processors.
+     */
+    private int numOfWorkers = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructor
+     *
+     * @param solver                   Solver providing the settings of all fits. It is not modified.
+     * @param objectiveFunctionFactory Factory creating an objective function for each worker
+     */
+    public BatchFitter(LevenbergMarquardt solver, ObjectiveFunctionFactory objectiveFunctionFactory) {
+        // Throw Exception
+        if (solver == null)
+            throw new NullPointerException("solver can't not be null");
+        if (objectiveFunctionFactory == null)
+            throw new NullPointerException("objectiveFunctionFactory can't not be null");
+
+        this.solver = solver;
+        this.objectiveFunctionFactory = objectiveFunctionFactory;
+    }
+
+    // region Getter and Setter
+
+    /**
+     * Set the thread pool
+     *
+     * @param executorService Thread pool. Set it as null to use {@link ForkJoinPool#commonPool()}.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     * Get the thread pool
+     *
+     * @return Return the thread pool. Null if the common pool is used.
+     */
+    public ExecutorService getExecutorService() {
+        return this.executorService;
+    }
+
+    /**
+     * Set the number of workers
+     *
+     * @param numOfWorkers Number of workers. Set it as 1 to fit on the calling thread.
+     */
+    public void setNumOfWorkers(int numOfWorkers) {
+        if (numOfWorkers <= 0)
+            throw new IllegalArgumentException("numOfWorkers (" + numOfWorkers + ") must be > 0.");
+
+        this.numOfWorkers = numOfWorkers;
+    }
+
+    /**
+     * Get the number of workers
+     *
+     * @return Return the number of workers
+     */
+    public int getNumOfWorkers() {
+        return this.numOfWorkers;
+    }
+
+    // endregion
+
+    /**
+     * Fit all problems from the initial parameters of the solver.
+     *
+     * @param x Data x of each problem in double[problem][sample]
+     * @param y Data y of each problem in double[problem][sample]
+     * @return Return the result
+     */
+    public BatchFitResult solve(double[][] x, double[][] y) {
+        return solve(x, y, null);
+    }
+
+    /**
+     * Fit all problems.
+     *
+     * @param x              Data x of each problem in double[problem][sample]
+     * @param y              Data y of each problem in double[problem][sample]
+     * @param initParameters Initial parameters of each problem in double[problem][parameter]. Set it, or a row of it,
+     *                       as null to use the initial parameters of the solver.
+     * @return Return the result
+     */
+    public BatchFitResult solve(double[][] x, double[][] y, double[][] initParameters) {
+        // Throw Exception
+        if (x.length != y.length)
+            throw new IllegalArgumentException("The number of problems in x (" + x.length + ") must be equal to y (" + y.length + ").");
+        if (initParameters != null && initParameters.length != x.length)
+            throw new IllegalArgumentException("The number of problems in initParameters (" + initParameters.length + ") must be equal to x (" + x.length + ").");
+        for (int k = 0; k < x.length; k++) {
+            if (x[k].length != y[k].length)
+                throw new IllegalArgumentException("The length of x[" + k + "] (" + x[k].length + ") must be equal to the length of y[" + k + "] (" + y[k].length + ").");
+        }
+
+        int numOfProblems = x.length;
+        int numOfParameters = numOfParameters(initParameters);
+
+        double[][] parameters = new double[numOfParameters][numOfProblems];
+        double[] losses = new double[numOfProblems];
+        AtomicInteger next = new AtomicInteger();
+
+        int workers = Math.min(this.numOfWorkers, (numOfProblems + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        if (workers <= 1) {
+            fit(x, y, initParameters, parameters, losses, next);
+            return new BatchFitResult(parameters, losses);
+        }
+
+        // Submit
+        ExecutorService executor = this.executorService != null ? this.executorService : ForkJoinPool.commonPool();
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Callable<Void> task = () -> {
+                fit(x, y, initParameters, parameters, losses, next);
+                return null;
+            };
+            futures.add(executor.submit(task));
+        }
+
+        // Wait
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Fail to solve.", e.getCause());
+        }
+
+        return new BatchFitResult(parameters, losses);
+    }
+
+    /**
+     * Worker loop. Take chunks of problems until all are fitted.
+     */
+    private void fit(double[][] x, double[][] y, double[][] initParameters, double[][] parameters, double[] losses, AtomicInteger next) {
+        LevenbergMarquardt workerSolver = this.solver.copy(this.objectiveFunctionFactory.create());
+        double[] defaultInitParameters = this.solver.getInitParameters();
+        double[] theta = new double[parameters.length];
+
+        int numOfProblems = losses.length;
+        for (int from = next.getAndAdd(CHUNK_SIZE); from < numOfProblems; from = next.getAndAdd(CHUNK_SIZE)) {
+            int to = Math.min(from + CHUNK_SIZE, numOfProblems);
+            for (int k = from; k < to; k++) {
+                double[] init = initParameters != null && initParameters[k] != null ? initParameters[k] : defaultInitParameters;
+                if (init != null && init.length != theta.length)
+                    throw new IllegalArgumentException("Length of initParameters[" + k + "] (" + init.length + ") must be = " + theta.length);
+
+                losses[k] = workerSolver.solve(x[k], y[k], init, theta);
+
+                // Scatter into struct-of-arrays
+                for (int pi = 0; pi < theta.length; pi++) {
+                    parameters[pi][k] = theta[pi];
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of parameters from the initial parameters or the objective function.
+     */
+    private int numOfParameters(double[][] initParameters) {
+        if (initParameters != null) {
+            for (double[] init : initParameters) {
+                if (init != null)
+                    return init.length;
+            }
+        }
+        if (this.solver.getInitParameters() != null)
+            return this.solver.getInitParameters().length;
+
+        double[] parameter = this.objectiveFunctionFactory.create().getParameter();
+        if (parameter == null)
+            throw new IllegalStateException("The number of parameters is unknown. Set the init parameters.");
+        return parameter.length;
+    }
+}
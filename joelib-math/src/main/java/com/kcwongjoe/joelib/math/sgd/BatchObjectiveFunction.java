@@ -0,0 +1,46 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Objective Function which writes the results into buffers owned by the caller.
+ * <p>
+ * The solver evaluates the samples <code>x[from]</code> to <code>x[to - 1]</code> and passes preallocated output
+ * buffers, so an implementation does not need to allocate any array per call or per sample. The result of
+ * <code>x[from]</code> is written to index 0 of the output buffers.
+ **/
+public interface BatchObjectiveFunction extends ObjectiveFunction {
+
+    /**
+     * Function
+     *
+     * @param x    x
+     * @param from Index of the first sample, inclusive
+     * @param to   Index of the last sample, exclusive
+     * @param fx   Output f(x) in double[to - from]
+     */
+    void function(double[] x, int from, int to, double[] fx);
+
+    /**
+     * df(x)/dtheta
+     *
+     * @param x        x
+     * @param from     Index of the first sample, inclusive
+     * @param to       Index of the last sample, exclusive
+     * @param jacobian Output df(x)/dtheta in row-major double[(to - from) * parameter]. df(x[i])/dtheta[k] is
+     *                 written to jacobian[(i - from) * parameter + k]
+     */
+    void derivativeFunctionParameters(double[] x, int from, int to, double[] jacobian);
+
+    /**
+     * Calculate f(x) and df(x)/dtheta together. Override it if both can share the intermediate terms.
+     *
+     * @param x        x
+     * @param from     Index of the first sample, inclusive
+     * @param to       Index of the last sample, exclusive
+     * @param fx       Output f(x) in double[to - from]
+     * @param jacobian Output df(x)/dtheta in row-major double[(to - from) * parameter]
+     */
+    default void functionAndDerivative(double[] x, int from, int to, double[] fx, double[] jacobian) {
+        function(x, from, to, fx);
+        derivativeFunctionParameters(x, from, to, jacobian);
+    }
+}
@@ -0,0 +1,93 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import java.util.Arrays;
+
+/**
+ * Adapt an {@link ObjectiveFunction} to {@link BatchObjectiveFunction}.
+ * <p>
+ * The results of the array-returning methods are copied into the output buffers, so it allocates as much as the
+ * wrapped function does.
+ **/
+public class BatchObjectiveFunctionAdapter implements BatchObjectiveFunction {
+
+    private final ObjectiveFunction objectiveFunction;
+
+    /**
+     * Constructor
+     *
+     * @param objectiveFunction Objective function to be wrapped
+     */
+    public BatchObjectiveFunctionAdapter(ObjectiveFunction objectiveFunction) {
+        if (objectiveFunction == null)
+            throw new NullPointerException("objectiveFunction can't not be null");
+
+        this.objectiveFunction = objectiveFunction;
+    }
+
+    /**
+     * Get the batch version of the objective function.
+     *
+     * @param objectiveFunction Objective function
+     * @return Return <code>objectiveFunction</code> if it is a {@link BatchObjectiveFunction}. Otherwise return an
+     * adapter.
+     */
+    public static BatchObjectiveFunction of(ObjectiveFunction objectiveFunction) {
+        if (objectiveFunction instanceof BatchObjectiveFunction)
+            return (BatchObjectiveFunction) objectiveFunction;
+        else
+            return new BatchObjectiveFunctionAdapter(objectiveFunction);
+    }
+
+    /**
+     * Get the wrapped objective function
+     *
+     * @return Return the wrapped objective function
+     */
+    public ObjectiveFunction getObjectiveFunction() {
+        return this.objectiveFunction;
+    }
+
+    @Override
+    public void setParameter(double[] parameters) {
+        this.objectiveFunction.setParameter(parameters);
+    }
+
+    @Override
+    public double[] getParameter() {
+        return this.objectiveFunction.getParameter();
+    }
+
+    @Override
+    public double[] function(double[] x) {
+        return this.objectiveFunction.function(x);
+    }
+
+    @Override
+    public double[][] derivativeFunctionParameters(double[] x) {
+        return this.objectiveFunction.derivativeFunctionParameters(x);
+    }
+
+    @Override
+    public void function(double[] x, int from, int to, double[] fx) {
+        double[] result = this.objectiveFunction.function(range(x, from, to));
+        System.arraycopy(result, 0, fx, 0, to - from);
+    }
+
+    @Override
+    public void derivativeFunctionParameters(double[] x, int from, int to, double[] jacobian) {
+        double[][] result = this.objectiveFunction.derivativeFunctionParameters(range(x, from, to));
+
+        int index = 0;
+        for (int si = 0; si < result.length; si++) {
+            System.arraycopy(result[si], 0, jacobian, index, result[si].length);
+            index += result[si].length;
+        }
+    }
+
+    private static double[] range(double[] x, int from, int to) {
+        if (from == 0 && to == x.length)
+            return x;
+        else
+            return Arrays.copyOfRange(x, from, to);
+    }
+}
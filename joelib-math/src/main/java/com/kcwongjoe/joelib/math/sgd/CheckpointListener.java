@@ -0,0 +1,16 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Receiver of the checkpoints of {@link StochasticGradientDescent}.
+ **/
+public interface CheckpointListener {
+
+    /**
+     * Called on the solving thread after an epoch when a checkpoint is taken.
+     *
+     * @param epoch      Number of completed epochs
+     * @param checkpoint Snapshot of the solver. Pass it to
+     *                   {@link StochasticGradientDescent#resume(byte[], double[], double[])} to continue.
+     */
+    void onCheckpoint(int epoch, byte[] checkpoint);
+}
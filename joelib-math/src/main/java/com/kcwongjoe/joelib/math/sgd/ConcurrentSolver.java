@@ -0,0 +1,108 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Thread-safe {@link StochasticGradientDescent} which can serve concurrent solve calls with one configuration.
+ * <p>
+ * The settings are copied from the template solver once in the constructor, so later changes of the template do not
+ * affect this solver. Every call runs on an execution context, i.e. a copy of the solver with its own optimizer
+ * state, scratch buffers and objective function created by the {@link ObjectiveFunctionFactory}. Idle contexts are
+ * pooled and reused by the next call, so the number of contexts is bounded by the number of concurrent calls.
+ * <p>
+ * The training listener, the checkpoint listener and the validation data of the template are not used. The validation
+ * fraction is used.
+ **/
+public class ConcurrentSolver {
+
+    private final StochasticGradientDescent solver;
+    private final ObjectiveFunctionFactory objectiveFunctionFactory;
+
+    /**
+     * Idle execution contexts
+     */
+    private final ConcurrentLinkedQueue<Context> contexts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor
+     *
+     * @param solver                   Solver providing the settings of all calls. It is not modified.
+     * @param objectiveFunctionFactory Factory creating an objective function for each execution context
+     */
+    public ConcurrentSolver(StochasticGradientDescent solver, ObjectiveFunctionFactory objectiveFunctionFactory) {
+        // Throw Exception
+        if (solver == null)
+            throw new NullPointerException("solver can't not be null");
+        if (objectiveFunctionFactory == null)
+            throw new NullPointerException("objectiveFunctionFactory can't not be null");
+
+        this.solver = solver.copy(objectiveFunctionFactory.create());
+        this.objectiveFunctionFactory = objectiveFunctionFactory;
+    }
+
+    /**
+     * Get the number of idle execution contexts
+     *
+     * @return Return the number of idle execution contexts
+     */
+    public int getNumOfIdleContexts() {
+        return this.contexts.size();
+    }
+
+    /**
+     * Release all idle execution contexts
+     */
+    public void clear() {
+        this.contexts.clear();
+    }
+
+    /**
+     * Optimize the parameters from the initial parameters of the template solver. It can be called from any thread.
+     *
+     * @param x Training data x
+     * @param y Training data y
+     * @return Return the optimized parameters
+     */
+    public double[] solve(double[] x, double[] y) {
+        return solve(x, y, null);
+    }
+
+    /**
+     * Optimize the parameters. It can be called from any thread.
+     *
+     * @param x              Training data x
+     * @param y              Training data y
+     * @param initParameters Initial parameters. Set it as null to use the initial parameters of the template solver.
+     * @return Return the optimized parameters
+     */
+    public double[] solve(double[] x, double[] y, double[] initParameters) {
+        // Take an idle context or create a new one
+        Context context = this.contexts.poll();
+        if (context == null)
+            context = new Context(this.solver.copy(this.objectiveFunctionFactory.create()));
+
+        try {
+            context.solver.setInitParameters(initParameters != null ? initParameters : context.initParameters);
+            return context.solver.solve(x, y);
+        } finally {
+            this.contexts.offer(context);
+        }
+    }
+
+    /**
+     * Execution context of a call
+     */
+    private static final class Context {
+        private final StochasticGradientDescent solver;
+
+        /**
+         * Initial parameters of the template solver
+         */
+        private final double[] initParameters;
+
+        private Context(StochasticGradientDescent solver) {
+            this.solver = solver;
+            this.initParameters = solver.getInitParameters() != null ? solver.getInitParameters().clone() : null;
+        }
+    }
+}
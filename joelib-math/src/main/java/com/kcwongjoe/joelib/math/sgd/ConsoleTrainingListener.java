@@ -0,0 +1,57 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import java.io.PrintStream;
+
+/**
+ * {@link TrainingListener} printing the progress of every epoch, e.g. for debugging.
+ * <p>
+ * It can wrap another listener, which is called after printing and decides whether the iteration continues.
+ **/
+public class ConsoleTrainingListener implements TrainingListener {
+
+    private final PrintStream out;
+    private final TrainingListener listener;
+
+    /**
+     * Constructor. Print to System.out.
+     */
+    public ConsoleTrainingListener() {
+        this(System.out, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param out      Output stream
+     * @param listener Listener called after printing. Set it as null to skip.
+     */
+    public ConsoleTrainingListener(PrintStream out, TrainingListener listener) {
+        // Throw Exception
+        if (out == null)
+            throw new NullPointerException("out can't not be null");
+
+        this.out = out;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onStart(int numOfParameters) {
+        if (this.listener != null)
+            this.listener.onStart(numOfParameters);
+    }
+
+    @Override
+    public void onValidation(int epoch, double validationLoss) {
+        this.out.println("Iteration = " + epoch + " validation loss = " + validationLoss);
+
+        if (this.listener != null)
+            this.listener.onValidation(epoch, validationLoss);
+    }
+
+    @Override
+    public boolean onEpoch(int epoch, double learningRate, double loss, double gradientNorm, long elapsedNanos) {
+        this.out.println("Iteration = " + epoch + " learning rate = " + learningRate + " loss = " + loss + " gradient norm = " + gradientNorm);
+
+        return this.listener == null || this.listener.onEpoch(epoch, learningRate, loss, gradientNorm, elapsedNanos);
+    }
+}
@@ -0,0 +1,27 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Training data of {@link StochasticGradientDescent} which is read block by block, so that it does not need to be
+ * on heap as a whole.
+ * <p>
+ * A data source must be safe for concurrent reads.
+ **/
+public interface DataSource {
+
+    /**
+     * Get the number of samples
+     *
+     * @return Return the number of samples
+     */
+    long size();
+
+    /**
+     * Read samples
+     *
+     * @param from   Index of the first sample
+     * @param length Number of samples to read
+     * @param x      Buffer of x. The samples are written from index 0.
+     * @param y      Buffer of y. The samples are written from index 0.
+     */
+    void read(long from, int length, double[] x, double[] y);
+}
@@ -0,0 +1,324 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import com.kcwongjoe.joelib.math.sgd.lr_loss.LossFunction;
+
+/**
+ * Streaming reduction of the mean gradient and the mean loss over samples.
+ * <p>
+ * Samples are added one by one (row-major), so the per-sample gradient matrix is never materialized.
+ * Same as {@link com.kcwongjoe.joelib.math.CumulativeAverage}, non-finite values will be ignored.
+ * <p>
+ * The count of a parameter is the number of samples minus the samples skipped for it, so a sparse sample only
+ * touches its non-zero entries.
+ **/
+public class GradientAccumulator {
+
+    private double[] gradientSum;
+    private long gradientSampleCount = 0;
+    private long[] gradientSkipCount;
+
+    private double lossSum = 0;
+    private long lossCount = 0;
+    private long lossSkipCount = 0;
+
+    /**
+     * Constructor
+     *
+     * @param numOfParameters Number of parameters
+     */
+    public GradientAccumulator(int numOfParameters) {
+        reset(numOfParameters);
+    }
+
+    /**
+     * Clear the accumulated values and resize the accumulator if the number of parameters is changed.
+     *
+     * @param numOfParameters Number of parameters
+     */
+    public void reset(int numOfParameters) {
+        if (numOfParameters < 0)
+            throw new IllegalArgumentException("numOfParameters (" + numOfParameters + ") must be >= 0.");
+
+        if (this.gradientSum == null || this.gradientSum.length != numOfParameters) {
+            this.gradientSum = new double[numOfParameters];
+            this.gradientSkipCount = new long[numOfParameters];
+            this.gradientSampleCount = 0;
+        } else {
+            clear();
+        }
+
+        this.lossSum = 0;
+        this.lossCount = 0;
+        this.lossSkipCount = 0;
+    }
+
+    /**
+     * Clear the accumulated values
+     */
+    public void clear() {
+        for (int pi = 0; pi < this.gradientSum.length; pi++) {
+            this.gradientSum[pi] = 0;
+            this.gradientSkipCount[pi] = 0;
+        }
+        this.gradientSampleCount = 0;
+
+        this.lossSum = 0;
+        this.lossCount = 0;
+        this.lossSkipCount = 0;
+    }
+
+    /**
+     * Get the number of parameters
+     *
+     * @return Return the number of parameters
+     */
+    public int getNumOfParameters() {
+        return this.gradientSum.length;
+    }
+
+    // region add
+
+    /**
+     * Add the gradient of a sample by chain rule, dLoss/dtheta = dLoss/df(x) * df(x)/dtheta
+     *
+     * @param derivativeLoss dLoss/df(x) on the sample
+     * @param dfdtheta       df(x)/dtheta on the sample
+     * @param offset         Index of df(x)/dtheta[0] in <code>dfdtheta</code>
+     */
+    public void addGradient(double derivativeLoss, double[] dfdtheta, int offset) {
+        double[] sum = this.gradientSum;
+        long[] skip = this.gradientSkipCount;
+        this.gradientSampleCount++;
+        for (int pi = 0; pi < sum.length; pi++) {
+            double gradient = derivativeLoss * dfdtheta[offset + pi];
+            if (Double.isFinite(gradient))
+                sum[pi] += gradient;
+            else
+                skip[pi]++;
+        }
+    }
+
+    /**
+     * Add the sparse gradient of a sample by chain rule, dLoss/dtheta = dLoss/df(x) * df(x)/dtheta. The entries not
+     * given are zero.
+     *
+     * @param derivativeLoss dLoss/df(x) on the sample
+     * @param columnIndex    Parameter index of the non-zero entries
+     * @param values         df(x)/dtheta of the non-zero entries
+     * @param from           Index of the first entry, inclusive
+     * @param to             Index of the last entry, exclusive
+     */
+    public void addSparseGradient(double derivativeLoss, int[] columnIndex, double[] values, int from, int to) {
+        // Same as a dense sample, a non-finite dLoss/df(x) makes every entry non-finite
+        if (!Double.isFinite(derivativeLoss)) {
+            this.gradientSampleCount++;
+            for (int pi = 0; pi < this.gradientSkipCount.length; pi++) {
+                this.gradientSkipCount[pi]++;
+            }
+            return;
+        }
+
+        double[] sum = this.gradientSum;
+        long[] skip = this.gradientSkipCount;
+        this.gradientSampleCount++;
+        for (int ei = from; ei < to; ei++) {
+            double gradient = derivativeLoss * values[ei];
+            if (Double.isFinite(gradient))
+                sum[columnIndex[ei]] += gradient;
+            else
+                skip[columnIndex[ei]]++;
+        }
+    }
+
+    /**
+     * Add a loss
+     *
+     * @param loss Loss of a sample
+     */
+    public void addLoss(double loss) {
+        if (Double.isFinite(loss)) {
+            this.lossSum += loss;
+            this.lossCount++;
+        } else {
+            this.lossSkipCount++;
+        }
+    }
+
+    /**
+     * Add the gradient of a sample
+     *
+     * @param lossFunction Loss function
+     * @param y            The true value on x
+     * @param fx           The predict value on x
+     * @param dfdtheta     df(x)/dtheta on x
+     * @param offset       Index of df(x)/dtheta[0] in <code>dfdtheta</code>
+     */
+    public void add(LossFunction lossFunction, double y, double fx, double[] dfdtheta, int offset) {
+        addGradient(lossFunction.derivativeLoss(y, fx), dfdtheta, offset);
+    }
+
+    /**
+     * Add the gradient of samples
+     *
+     * @param lossFunction Loss function
+     * @param y            The true values
+     * @param fx           The predict values
+     * @param dfdtheta     df(x)/dtheta in double[sample][parameter]
+     * @param withLoss     Accumulate the loss as well?
+     */
+    public void add(LossFunction lossFunction, double[] y, double[] fx, double[][] dfdtheta, boolean withLoss) {
+        for (int si = 0; si < y.length; si++) {
+            addGradient(lossFunction.derivativeLoss(y[si], fx[si]), dfdtheta[si], 0);
+            if (withLoss)
+                addLoss(lossFunction.loss(y[si], fx[si]));
+        }
+    }
+
+    /**
+     * Add the gradient of samples
+     *
+     * @param lossFunction Loss function
+     * @param y            The true values
+     * @param yOffset      Index of the first sample in <code>y</code>
+     * @param fx           The predict values, starting from index 0
+     * @param jacobian     df(x)/dtheta in row-major double[sample * parameter], starting from index 0
+     * @param length       Number of samples
+     * @param withLoss     Accumulate the loss as well?
+     */
+    public void add(LossFunction lossFunction, double[] y, int yOffset, double[] fx, double[] jacobian, int length, boolean withLoss) {
+        int numOfParameters = this.gradientSum.length;
+        for (int si = 0; si < length; si++) {
+            double yi = y[yOffset + si];
+            addGradient(lossFunction.derivativeLoss(yi, fx[si]), jacobian, si * numOfParameters);
+            if (withLoss)
+                addLoss(lossFunction.loss(yi, fx[si]));
+        }
+    }
+
+    /**
+     * Add the sparse gradient of samples
+     *
+     * @param lossFunction Loss function
+     * @param y            The true values
+     * @param yOffset      Index of the first sample in <code>y</code>
+     * @param fx           The predict values, starting from index 0
+     * @param rowStart     Index of the first non-zero entry of each sample in int[length + 1]
+     * @param columnIndex  Parameter index of the non-zero entries
+     * @param values       df(x)/dtheta of the non-zero entries
+     * @param length       Number of samples
+     * @param withLoss     Accumulate the loss as well?
+     */
+    public void addSparse(LossFunction lossFunction, double[] y, int yOffset, double[] fx, int[] rowStart, int[] columnIndex, double[] values, int length, boolean withLoss) {
+        for (int si = 0; si < length; si++) {
+            double yi = y[yOffset + si];
+            addSparseGradient(lossFunction.derivativeLoss(yi, fx[si]), columnIndex, values, rowStart[si], rowStart[si + 1]);
+            if (withLoss)
+                addLoss(lossFunction.loss(yi, fx[si]));
+        }
+    }
+
+    /**
+     * Add the loss of samples
+     *
+     * @param lossFunction Loss function
+     * @param y            The true values
+     * @param yOffset      Index of the first sample in <code>y</code>
+     * @param fx           The predict values, starting from index 0
+     * @param length       Number of samples
+     */
+    public void addLoss(LossFunction lossFunction, double[] y, int yOffset, double[] fx, int length) {
+        for (int si = 0; si < length; si++) {
+            addLoss(lossFunction.loss(y[yOffset + si], fx[si]));
+        }
+    }
+
+    /**
+     * Add the loss of samples
+     *
+     * @param lossFunction Loss function
+     * @param y            The true values
+     * @param fx           The predict values
+     */
+    public void addLoss(LossFunction lossFunction, double[] y, double[] fx) {
+        for (int si = 0; si < y.length; si++) {
+            addLoss(lossFunction.loss(y[si], fx[si]));
+        }
+    }
+
+    /**
+     * Add the accumulated values of another accumulator
+     *
+     * @param other Accumulator with the same number of parameters
+     */
+    public void merge(GradientAccumulator other) {
+        if (other.gradientSum.length != this.gradientSum.length)
+            throw new IllegalArgumentException("Number of parameters (" + other.gradientSum.length + ") must be = " + this.gradientSum.length);
+
+        for (int pi = 0; pi < this.gradientSum.length; pi++) {
+            this.gradientSum[pi] += other.gradientSum[pi];
+            this.gradientSkipCount[pi] += other.gradientSkipCount[pi];
+        }
+        this.gradientSampleCount += other.gradientSampleCount;
+
+        this.lossSum += other.lossSum;
+        this.lossCount += other.lossCount;
+        this.lossSkipCount += other.lossSkipCount;
+    }
+
+    // endregion
+
+    // region result
+
+    /**
+     * Get the mean gradient of a parameter
+     *
+     * @param index Parameter index
+     * @return Return the mean gradient. 0 will be return if no finite value is added.
+     */
+    public double getMeanGradient(int index) {
+        long count = this.gradientSampleCount - this.gradientSkipCount[index];
+        return count == 0 ? 0 : this.gradientSum[index] / count;
+    }
+
+    /**
+     * Get the mean gradient
+     *
+     * @param gradient Output buffer of the mean gradient. Length must be &gt;= number of parameters
+     * @return Return <code>gradient</code>
+     */
+    public double[] getMeanGradient(double[] gradient) {
+        for (int pi = 0; pi < this.gradientSum.length; pi++) {
+            gradient[pi] = getMeanGradient(pi);
+        }
+        return gradient;
+    }
+
+    /**
+     * Get the mean loss
+     *
+     * @return Return the mean loss. 0 will be return if no finite value is added.
+     */
+    public double getMeanLoss() {
+        return this.lossCount == 0 ? 0 : this.lossSum / this.lossCount;
+    }
+
+    /**
+     * Get the number of finite losses added
+     *
+     * @return Return the number of finite losses added
+     */
+    public long getNumOfLosses() {
+        return this.lossCount;
+    }
+
+    /**
+     * Get the number of non-finite losses skipped
+     *
+     * @return Return the number of non-finite losses skipped
+     */
+    public long getNumOfSkippedLosses() {
+        return this.lossSkipCount;
+    }
+
+    // endregion
+}
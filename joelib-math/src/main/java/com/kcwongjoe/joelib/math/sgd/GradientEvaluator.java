@@ -0,0 +1,193 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import com.kcwongjoe.joelib.math.sgd.lr_loss.LossFunction;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluate the objective function block by block and reduce the loss and the gradient into a
+ * {@link GradientAccumulator}. Buffers are allocated once and reused.
+ * <p>
+ * In parallel, every block is a chunk with its own partial sums and the partial sums are reduced in chunk order, so
+ * the result does not depend on the thread scheduling.
+ * <p>
+ * The gradient of a {@link SparseObjectiveFunction} is evaluated and accumulated in CSR format.
+ **/
+final class GradientEvaluator {
+
+    private final Buffer buffer = new Buffer();
+    private int numOfParameters = 0;
+
+    // Parallel
+    private GradientAccumulator[] partials = new GradientAccumulator[0];
+    private final ThreadLocal<Buffer> threadBuffers = ThreadLocal.withInitial(Buffer::new);
+
+    /**
+     * Resize the buffers if the number of parameters is changed.
+     *
+     * @param numOfParameters Number of parameters
+     */
+    void ensure(int numOfParameters) {
+        this.numOfParameters = numOfParameters;
+        this.buffer.ensure(numOfParameters);
+    }
+
+    /**
+     * Evaluate the objective function on the samples [0, numOfSample) and add the results to the accumulator.
+     *
+     * @param function     Objective function with the parameters set
+     * @param lossFunction Loss function
+     * @param accumulator  Accumulator
+     * @param x            Data x
+     * @param y            Data y
+     * @param numOfSample  Number of samples in x and y to be used
+     * @param withGradient Accumulate the gradient? Otherwise only the loss is accumulated.
+     * @param withLoss     Accumulate the loss together with the gradient? Ignored if withGradient is false.
+     * @param pool         Thread pool. Set it as null to evaluate on the calling thread.
+     */
+    void accumulate(BatchObjectiveFunction function, LossFunction lossFunction, GradientAccumulator accumulator, double[] x, double[] y, int numOfSample, boolean withGradient, boolean withLoss, ForkJoinPool pool) {
+        int blockSize = StochasticGradientDescent.BLOCK_SIZE;
+        if (pool != null && numOfSample > blockSize) {
+            int numOfChunks = (numOfSample + blockSize - 1) / blockSize;
+            ensurePartials(numOfChunks, accumulator.getNumOfParameters());
+
+            pool.invoke(new AccumulateTask(function, lossFunction, x, y, numOfSample, withGradient, withLoss, 0, numOfChunks));
+
+            // Reduce in chunk order
+            for (int ci = 0; ci < numOfChunks; ci++) {
+                accumulator.merge(this.partials[ci]);
+            }
+        } else {
+            for (int from = 0; from < numOfSample; from += blockSize) {
+                accumulateBlock(function, lossFunction, accumulator, this.buffer, x, y, from, Math.min(from + blockSize, numOfSample), withGradient, withLoss);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the objective function on a block and add the results to the accumulator.
+     */
+    private static void accumulateBlock(BatchObjectiveFunction function, LossFunction lossFunction, GradientAccumulator accumulator, Buffer buffer, double[] x, double[] y, int from, int to, boolean withGradient, boolean withLoss) {
+        if (withGradient && function instanceof SparseObjectiveFunction) {
+            SparseObjectiveFunction sparseFunction = (SparseObjectiveFunction) function;
+            buffer.ensureSparse(sparseFunction.getMaxNonZerosPerSample());
+            sparseFunction.functionAndSparseDerivative(x, from, to, buffer.fx, buffer.rowStart, buffer.columnIndex, buffer.values);
+            accumulator.addSparse(lossFunction, y, from, buffer.fx, buffer.rowStart, buffer.columnIndex, buffer.values, to - from, withLoss);
+        } else if (withGradient) {
+            function.functionAndDerivative(x, from, to, buffer.fx, buffer.jacobian);
+            accumulator.add(lossFunction, y, from, buffer.fx, buffer.jacobian, to - from, withLoss);
+        } else {
+            function.function(x, from, to, buffer.fx);
+            accumulator.addLoss(lossFunction, y, from, buffer.fx, to - from);
+        }
+    }
+
+    /**
+     * Make sure there is a partial accumulator for each chunk.
+     *
+     * @param numOfChunks     Number of chunks
+     * @param numOfParameters Number of parameters
+     */
+    private void ensurePartials(int numOfChunks, int numOfParameters) {
+        if (this.partials.length < numOfChunks || (this.partials.length > 0 && this.partials[0].getNumOfParameters() != numOfParameters)) {
+            this.partials = new GradientAccumulator[numOfChunks];
+            for (int ci = 0; ci < numOfChunks; ci++) {
+                this.partials[ci] = new GradientAccumulator(numOfParameters);
+            }
+        }
+    }
+
+    /**
+     * Get the buffers of the current thread.
+     *
+     * @return Return the buffers
+     */
+    private Buffer threadBuffer() {
+        Buffer buffer = this.threadBuffers.get();
+        buffer.ensure(this.numOfParameters);
+        return buffer;
+    }
+
+    /**
+     * Evaluate the chunks [fromChunk, toChunk) into their partial accumulators.
+     */
+    private final class AccumulateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BatchObjectiveFunction function;
+        private final LossFunction lossFunction;
+        private final double[] x;
+        private final double[] y;
+        private final int numOfSample;
+        private final boolean withGradient;
+        private final boolean withLoss;
+        private final int fromChunk;
+        private final int toChunk;
+
+        private AccumulateTask(BatchObjectiveFunction function, LossFunction lossFunction, double[] x, double[] y, int numOfSample, boolean withGradient, boolean withLoss, int fromChunk, int toChunk) {
+            this.function = function;
+            this.lossFunction = lossFunction;
+            this.x = x;
+            this.y = y;
+            this.numOfSample = numOfSample;
+            this.withGradient = withGradient;
+            this.withLoss = withLoss;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.toChunk - this.fromChunk > 1) {
+                int middle = (this.fromChunk + this.toChunk) >>> 1;
+                invokeAll(new AccumulateTask(this.function, this.lossFunction, this.x, this.y, this.numOfSample, this.withGradient, this.withLoss, this.fromChunk, middle),
+                        new AccumulateTask(this.function, this.lossFunction, this.x, this.y, this.numOfSample, this.withGradient, this.withLoss, middle, this.toChunk));
+            } else {
+                Buffer buffer = threadBuffer();
+                GradientAccumulator partial = partials[this.fromChunk];
+                partial.clear();
+
+                int from = this.fromChunk * StochasticGradientDescent.BLOCK_SIZE;
+                int to = Math.min(from + StochasticGradientDescent.BLOCK_SIZE, this.numOfSample);
+                accumulateBlock(this.function, this.lossFunction, partial, buffer, this.x, this.y, from, to, this.withGradient, this.withLoss);
+            }
+        }
+    }
+
+    /**
+     * f(x) and df(x)/dtheta buffers of a block
+     */
+    private static final class Buffer {
+        private final double[] fx = new double[StochasticGradientDescent.BLOCK_SIZE];
+        private double[] jacobian = new double[0];
+
+        // Sparse df(x)/dtheta in CSR
+        private final int[] rowStart = new int[StochasticGradientDescent.BLOCK_SIZE + 1];
+        private int[] columnIndex = new int[0];
+        private double[] values = new double[0];
+
+        /**
+         * Resize the dense buffer if the number of parameters is changed.
+         *
+         * @param numOfParameters Number of parameters
+         */
+        private void ensure(int numOfParameters) {
+            if (this.jacobian.length != StochasticGradientDescent.BLOCK_SIZE * numOfParameters)
+                this.jacobian = new double[StochasticGradientDescent.BLOCK_SIZE * numOfParameters];
+        }
+
+        /**
+         * Grow the sparse buffers if they are too small.
+         *
+         * @param maxNonZerosPerSample Max number of non-zero entries per sample
+         */
+        private void ensureSparse(int maxNonZerosPerSample) {
+            int capacity = StochasticGradientDescent.BLOCK_SIZE * maxNonZerosPerSample;
+            if (this.values.length < capacity) {
+                this.columnIndex = new int[capacity];
+                this.values = new double[capacity];
+            }
+        }
+    }
+}
@@ -0,0 +1,609 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import com.kcwongjoe.joelib.math.sgd.lr_loss.L2LossFunc;
+import com.kcwongjoe.joelib.math.sgd.lr_loss.LossFunction;
+import com.kcwongjoe.joelib.math.sgd.regu.Regularization;
+
+/**
+ * Limited-memory BFGS with a strong Wolfe line search.
+ * <p>
+ * Minimize the mean loss plus the regularization over all samples. It suits objective functions with many parameters
+ * where first-order methods converge slowly. The last <code>historySize</code> updates are kept in a ring buffer and
+ * all buffers are allocated once, so an iteration does not allocate.
+ * <p>
+ * reference: https://doi.org/10.1007/BF01589116
+ **/
+public class LBFGS {
+
+    private static final int STOP_ABSOLUTE_LOSS = 0;
+    private static final int STOP_RELATIVE_LOSS = 1;
+
+    private ObjectiveFunction objectiveFunction;
+    private BatchObjectiveFunction batchObjectiveFunction;
+    private double[] initParameters = null;
+
+    /**
+     * Maximum number of iterations. Default as 100
+     */
+    private int maxIterations = 100;
+
+    /**
+     * Number of updates to approximate the inverse Hessian. Default as 10
+     */
+    private int historySize = 10;
+
+    /**
+     * Maximum number of function evaluations in a line search. Default as 20
+     */
+    private int maxLineSearch = 20;
+
+    /**
+     * Sufficient decrease coefficient of the Wolfe conditions. Default as 1e-4
+     */
+    private double c1 = 1e-4;
+
+    /**
+     * Curvature coefficient of the Wolfe conditions. Default as 0.9
+     */
+    private double c2 = 0.9;
+
+    /**
+     * Loss Function. Default as L2 Loss.
+     */
+    private LossFunction lossFunction = new L2LossFunc();
+
+    /**
+     * Regularization. Set it to null to disabled.
+     */
+    private Regularization regularization = null;
+
+    private int stopLossType = STOP_RELATIVE_LOSS;
+    private double stopLossThreshold = 1e-9;
+
+    // Workspace
+    private final GradientEvaluator evaluator = new GradientEvaluator();
+    private GradientAccumulator accumulator;
+    private double[] theta;
+    private double[] gradient;
+    private double[] newTheta;
+    private double[] newGradient;
+    private double[] direction;
+    private double[] regularizationDerivative;
+    private double[][] sHistory;
+    private double[][] yHistory;
+    private double[] rhoHistory;
+    private double[] alpha;
+    private double newLoss;
+
+    /**
+     * Constructor
+     *
+     * @param objectiveFunction Objective Function
+     */
+    public LBFGS(ObjectiveFunction objectiveFunction) {
+        // Throw Exception
+        if (objectiveFunction == null)
+            throw new NullPointerException("objectiveFunction can't not be null");
+
+        // Set
+        this.objectiveFunction = objectiveFunction;
+        this.batchObjectiveFunction = BatchObjectiveFunctionAdapter.of(objectiveFunction);
+
+        if (this.objectiveFunction.getParameter() != null)
+            this.initParameters = this.objectiveFunction.getParameter().clone();
+    }
+
+    // region Getter and Setter
+
+    // region initParameters
+
+    /**
+     * Set the initial parameters
+     *
+     * @param initParameters Initial parameters
+     */
+    public void setInitParameters(double[] initParameters) {
+        if (this.objectiveFunction.getParameter() != null && initParameters.length != this.objectiveFunction.getParameter().length)
+            throw new IllegalArgumentException("Length of initParameters (" + initParameters.length + ") must be = " + this.objectiveFunction.getParameter().length);
+
+        this.initParameters = initParameters;
+    }
+
+    /**
+     * Get the initial parameters
+     *
+     * @return Return the initial parameters
+     */
+    public double[] getInitParameters() {
+        return this.initParameters;
+    }
+
+    // endregion
+
+    // region maxIterations
+
+    /**
+     * Set the maximum number of iterations
+     *
+     * @param maxIterations Maximum number of iterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations <= 0)
+            throw new IllegalArgumentException("maxIterations(" + maxIterations + ") must be > 0.");
+
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Get the maximum number of iterations
+     *
+     * @return Return the maximum number of iterations
+     */
+    public int getMaxIterations() {
+        return this.maxIterations;
+    }
+
+    // endregion
+
+    // region history size
+
+    /**
+     * Set the number of updates kept to approximate the inverse Hessian
+     *
+     * @param historySize History size. Must be &gt; 0
+     */
+    public void setHistorySize(int historySize) {
+        if (historySize <= 0)
+            throw new IllegalArgumentException("historySize(" + historySize + ") must be > 0.");
+
+        this.historySize = historySize;
+    }
+
+    /**
+     * Get the number of updates kept to approximate the inverse Hessian
+     *
+     * @return Return the history size
+     */
+    public int getHistorySize() {
+        return this.historySize;
+    }
+
+    // endregion
+
+    // region line search
+
+    /**
+     * Set the maximum number of function evaluations in a line search
+     *
+     * @param maxLineSearch Maximum number of function evaluations. Must be &gt; 0
+     */
+    public void setMaxLineSearch(int maxLineSearch) {
+        if (maxLineSearch <= 0)
+            throw new IllegalArgumentException("maxLineSearch(" + maxLineSearch + ") must be > 0.");
+
+        this.maxLineSearch = maxLineSearch;
+    }
+
+    /**
+     * Get the maximum number of function evaluations in a line search
+     *
+     * @return Return the maximum number of function evaluations
+     */
+    public int getMaxLineSearch() {
+        return this.maxLineSearch;
+    }
+
+    /**
+     * Set the coefficients of the strong Wolfe conditions
+     *
+     * @param c1 Sufficient decrease coefficient. Default as 1e-4
+     * @param c2 Curvature coefficient. Default as 0.9. It must be 0 &lt; c1 &lt; c2 &lt; 1
+     */
+    public void setWolfeCoefficients(double c1, double c2) {
+        if (!(0 < c1 && c1 < c2 && c2 < 1))
+            throw new IllegalArgumentException("c1(" + c1 + ") and c2(" + c2 + ") must be 0 < c1 < c2 < 1.");
+
+        this.c1 = c1;
+        this.c2 = c2;
+    }
+
+    // endregion
+
+    // region loss function
+
+    /**
+     * Get the loss function
+     *
+     * @return Return the loss funcion
+     */
+    public LossFunction getLossFunction() {
+        return this.lossFunction;
+    }
+
+    /**
+     * Set the loss function
+     *
+     * @param lossFunction Loss fucntion
+     */
+    public void setLossFunction(LossFunction lossFunction) {
+        if (lossFunction == null)
+            throw new NullPointerException("lossFucntion can't be null.");
+
+        this.lossFunction = lossFunction;
+    }
+
+    // endregion
+
+    // region regularization
+
+    /**
+     * Set regularization.  Default as disabled.
+     *
+     * @param regularization Set it to null to disabled the regularization
+     */
+    public void setRegularization(Regularization regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * Get regularization.
+     *
+     * @return Return the regularization.
+     */
+    public Regularization getRegularization() {
+        return this.regularization;
+    }
+
+    // endregion
+
+    // region stop loss threshold
+
+    /**
+     * Set the absolute loss threshold
+     * Iteration will be stop if the average loss is &lt; threshold
+     *
+     * @param threshold Threshold
+     */
+    public void setStopAbsoluteLoss(double threshold) {
+        this.stopLossType = STOP_ABSOLUTE_LOSS;
+        this.stopLossThreshold = threshold;
+    }
+
+    /**
+     * Set the relative loss threshold
+     * Iteration will be stop if the average loss improvement &lt; threshold in %;
+     *
+     * @param threshold Threshold
+     */
+    public void setStopRelativeLoss(double threshold) {
+        this.stopLossType = STOP_RELATIVE_LOSS;
+        this.stopLossThreshold = threshold;
+    }
+
+    // endregion
+
+    // endregion
+
+    /**
+     * Optimize the parameters in the objective function.
+     *
+     * @param x Training data x
+     * @param y Training data y
+     * @return Return the optimized parameters
+     */
+    public double[] solve(double[] x, double[] y) {
+        // Throw Exception
+        if (x.length != y.length)
+            throw new IllegalArgumentException("The length of x (" + x.length + ") must be equal to the length of y (" + y.length + ").");
+
+        // Initialize
+        int numOfParameters = this.initParameters != null ? this.initParameters.length : this.objectiveFunction.getParameter().length;
+        ensure(numOfParameters);
+        if (this.initParameters != null)
+            System.arraycopy(this.initParameters, 0, this.theta, 0, numOfParameters);
+        else {
+            for (int i = 0; i < numOfParameters; i++) {
+                this.theta[i] = 1;
+            }
+        }
+
+        double loss = evaluate(x, y, this.theta, this.gradient);
+        int historyStart = 0;
+        int historyCount = 0;
+
+        // Iteration
+        int iter = 0;
+        boolean stopIteration = false;
+        while (!stopIteration && iter < this.maxIterations) {
+
+            // Search direction
+            if (historyCount > 0)
+                twoLoopRecursion(historyStart, historyCount);
+            else
+                steepestDescent();
+
+            double slope = dot(this.gradient, this.direction);
+            if (!(slope < 0)) {
+                // Not a descent direction, restart from steepest descent
+                if (historyCount == 0)
+                    break;
+                historyCount = 0;
+                continue;
+            }
+
+            // Line search, the initial step of the first iteration is normalized by the gradient
+            double initStep = historyCount == 0 ? Math.min(1, 1 / Math.sqrt(dot(this.gradient, this.gradient))) : 1;
+            if (!lineSearch(x, y, loss, slope, initStep)) {
+                // Restart once from steepest descent
+                if (historyCount == 0)
+                    break;
+                historyCount = 0;
+                continue;
+            }
+
+            // Update history
+            int index = historyCount < this.historySize ? (historyStart + historyCount) % this.historySize : historyStart;
+            double[] s = this.sHistory[index];
+            double[] yk = this.yHistory[index];
+            for (int pi = 0; pi < numOfParameters; pi++) {
+                s[pi] = this.newTheta[pi] - this.theta[pi];
+                yk[pi] = this.newGradient[pi] - this.gradient[pi];
+            }
+            double sy = dot(s, yk);
+            if (sy > 0) {
+                this.rhoHistory[index] = 1 / sy;
+                if (historyCount < this.historySize)
+                    historyCount++;
+                else
+                    historyStart = (historyStart + 1) % this.historySize;
+            }
+
+            // Update theta
+            swap();
+
+            // Stop
+
+            //    Get loss threshold
+            double lossThreshold = this.stopLossThreshold;
+            if (this.stopLossType == STOP_RELATIVE_LOSS) {
+                lossThreshold = this.newLoss * this.stopLossThreshold;
+            }
+
+            //    Check
+            double lossDiff = loss - this.newLoss;
+            if (lossDiff >= 0 && lossDiff < lossThreshold)
+                stopIteration = true;
+
+            //    Update
+            loss = this.newLoss;
+
+            iter++;
+        }
+
+        // Copy out of the workspace so that the result is not overwritten by the next solve
+        double[] result = this.theta.clone();
+        this.batchObjectiveFunction.setParameter(result);
+
+        return result;
+    }
+
+    /**
+     * Allocate the workspace if the problem size is changed
+     *
+     * @param numOfParameters Number of parameters
+     */
+    private void ensure(int numOfParameters) {
+        if (this.theta == null || this.theta.length != numOfParameters || this.sHistory.length != this.historySize) {
+            this.accumulator = new GradientAccumulator(numOfParameters);
+            this.evaluator.ensure(numOfParameters);
+            this.theta = new double[numOfParameters];
+            this.gradient = new double[numOfParameters];
+            this.newTheta = new double[numOfParameters];
+            this.newGradient = new double[numOfParameters];
+            this.direction = new double[numOfParameters];
+            this.regularizationDerivative = new double[numOfParameters];
+            this.sHistory = new double[this.historySize][numOfParameters];
+            this.yHistory = new double[this.historySize][numOfParameters];
+            this.rhoHistory = new double[this.historySize];
+            this.alpha = new double[this.historySize];
+        }
+    }
+
+    /**
+     * Calculate the loss and the gradient
+     *
+     * @param x            x
+     * @param y            y
+     * @param theta        Parameters
+     * @param gradientOut  Output gradient
+     * @return Return the mean loss plus the regularization. Infinity if a loss is not finite or there is no sample.
+     */
+    private double evaluate(double[] x, double[] y, double[] theta, double[] gradientOut) {
+        this.batchObjectiveFunction.setParameter(theta);
+        this.accumulator.clear();
+        this.evaluator.accumulate(this.batchObjectiveFunction, this.lossFunction, this.accumulator, x, y, x.length, true, true, null);
+
+        double loss = this.accumulator.getMeanLoss();
+        this.accumulator.getMeanGradient(gradientOut);
+
+        // A point with non-finite residuals is not comparable with the others, since dropping the samples would lower
+        // the mean. Infinity makes the line search shrink the step.
+        if (this.accumulator.getNumOfLosses() == 0 || this.accumulator.getNumOfSkippedLosses() > 0)
+            return Double.POSITIVE_INFINITY;
+
+        // Regularization
+        if (this.regularization != null) {
+            loss += this.regularization.loss(theta);
+            this.regularization.derivativeLoss(theta, this.regularizationDerivative);
+            for (int pi = 0; pi < gradientOut.length; pi++) {
+                gradientOut[pi] += this.regularizationDerivative[pi];
+            }
+        }
+
+        return loss;
+    }
+
+    /**
+     * direction = -gradient
+     */
+    private void steepestDescent() {
+        for (int pi = 0; pi < this.direction.length; pi++) {
+            this.direction[pi] = -this.gradient[pi];
+        }
+    }
+
+    /**
+     * direction = -H * gradient by the two-loop recursion
+     *
+     * @param historyStart Index of the oldest update in the ring buffer
+     * @param historyCount Number of updates in the ring buffer
+     */
+    private void twoLoopRecursion(int historyStart, int historyCount) {
+        double[] q = this.direction;
+        System.arraycopy(this.gradient, 0, q, 0, q.length);
+
+        // Newest to oldest
+        for (int i = historyCount - 1; i >= 0; i--) {
+            int index = (historyStart + i) % this.historySize;
+            double a = this.rhoHistory[index] * dot(this.sHistory[index], q);
+            this.alpha[index] = a;
+            axpy(-a, this.yHistory[index], q);
+        }
+
+        // Initial Hessian gamma * I
+        int newest = (historyStart + historyCount - 1) % this.historySize;
+        double gamma = 1 / (this.rhoHistory[newest] * dot(this.yHistory[newest], this.yHistory[newest]));
+        for (int pi = 0; pi < q.length; pi++) {
+            q[pi] *= gamma;
+        }
+
+        // Oldest to newest
+        for (int i = 0; i < historyCount; i++) {
+            int index = (historyStart + i) % this.historySize;
+            double b = this.rhoHistory[index] * dot(this.yHistory[index], q);
+            axpy(this.alpha[index] - b, this.sHistory[index], q);
+        }
+
+        for (int pi = 0; pi < q.length; pi++) {
+            q[pi] = -q[pi];
+        }
+    }
+
+    /**
+     * Find a step satisfying the strong Wolfe conditions along the direction. On success, newTheta, newGradient and
+     * newLoss hold the accepted point.
+     *
+     * @param x        x
+     * @param y        y
+     * @param loss     Loss at theta
+     * @param slope    gradient . direction at theta
+     * @param initStep Initial step
+     * @return Return true if a step is found
+     */
+    private boolean lineSearch(double[] x, double[] y, double loss, double slope, double initStep) {
+        double previousStep = 0;
+        double previousLoss = loss;
+        double previousSlope = slope;
+        double step = initStep;
+
+        for (int i = 0; i < this.maxLineSearch; i++) {
+            double stepLoss = evaluateStep(x, y, step);
+            double stepSlope = dot(this.newGradient, this.direction);
+
+            if (stepLoss > loss + this.c1 * step * slope || (i > 0 && stepLoss >= previousLoss))
+                return zoom(x, y, loss, slope, previousStep, previousLoss, previousSlope, step, stepLoss, this.maxLineSearch - i - 1);
+            if (Math.abs(stepSlope) <= -this.c2 * slope)
+                return true;
+            if (stepSlope >= 0)
+                return zoom(x, y, loss, slope, step, stepLoss, stepSlope, previousStep, previousLoss, this.maxLineSearch - i - 1);
+
+            previousStep = step;
+            previousLoss = stepLoss;
+            previousSlope = stepSlope;
+            step *= 2;
+        }
+
+        return false;
+    }
+
+    /**
+     * Zoom into [lowStep, highStep] until a step satisfies the strong Wolfe conditions.
+     */
+    private boolean zoom(double[] x, double[] y, double loss, double slope, double lowStep, double lowLoss, double lowSlope, double highStep, double highLoss, int maxEvaluations) {
+        for (int i = 0; i < maxEvaluations; i++) {
+            // Quadratic interpolation, safeguarded by bisection
+            double width = highStep - lowStep;
+            double denominator = 2 * (highLoss - lowLoss - lowSlope * width);
+            double step = denominator != 0 ? lowStep - lowSlope * width * width / denominator : Double.NaN;
+            double min = Math.min(lowStep, highStep) + 0.1 * Math.abs(width);
+            double max = Math.max(lowStep, highStep) - 0.1 * Math.abs(width);
+            if (!(step >= min && step <= max))
+                step = lowStep + width / 2;
+
+            double stepLoss = evaluateStep(x, y, step);
+            double stepSlope = dot(this.newGradient, this.direction);
+
+            if (stepLoss > loss + this.c1 * step * slope || stepLoss >= lowLoss) {
+                highStep = step;
+                highLoss = stepLoss;
+            } else {
+                if (Math.abs(stepSlope) <= -this.c2 * slope)
+                    return true;
+                if (stepSlope * (highStep - lowStep) >= 0) {
+                    highStep = lowStep;
+                    highLoss = lowLoss;
+                }
+                lowStep = step;
+                lowLoss = stepLoss;
+                lowSlope = stepSlope;
+            }
+        }
+
+        // Accept the best point with sufficient decrease
+        if (lowStep > 0 && lowLoss < loss) {
+            evaluateStep(x, y, lowStep);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Evaluate newTheta = theta + step * direction
+     *
+     * @return Return the loss at newTheta
+     */
+    private double evaluateStep(double[] x, double[] y, double step) {
+        for (int pi = 0; pi < this.theta.length; pi++) {
+            this.newTheta[pi] = this.theta[pi] + step * this.direction[pi];
+        }
+        this.newLoss = evaluate(x, y, this.newTheta, this.newGradient);
+        return this.newLoss;
+    }
+
+    /**
+     * Swap theta and newTheta, gradient and newGradient
+     */
+    private void swap() {
+        double[] temp = this.theta;
+        this.theta = this.newTheta;
+        this.newTheta = temp;
+
+        temp = this.gradient;
+        this.gradient = this.newGradient;
+        this.newGradient = temp;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static void axpy(double a, double[] x, double[] y) {
+        for (int i = 0; i < y.length; i++) {
+            y[i] += a * x[i];
+        }
+    }
+}
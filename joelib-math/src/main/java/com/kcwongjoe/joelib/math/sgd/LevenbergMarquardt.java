@@ -0,0 +1,562 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Levenberg-Marquardt least squares solver.
+ * <p>
+ * Minimize the L2 loss ((y - f(x))^2) / 2 by the Jacobian df(x)/dtheta of the objective function. It converges in
+ * much fewer iterations than {@link StochasticGradientDescent} for problems with a few parameters, e.g. curve
+ * fitting. Parameters are projected into the parameter range after every step.
+ * <p>
+ * reference: https://doi.org/10.1137/0111030
+ **/
+public class LevenbergMarquardt {
+
+    private static final int STOP_ABSOLUTE_LOSS = 0;
+    private static final int STOP_RELATIVE_LOSS = 1;
+
+    private static final double MAX_DAMPING = 1e16;
+
+    private ObjectiveFunction objectiveFunction;
+    private BatchObjectiveFunction batchObjectiveFunction;
+    private double[] initParameters = null;
+
+    /**
+     * parameters range double[para][2] { {min,max}, {min, max} }
+     */
+    private double[][] parameterRange = null;
+
+    /**
+     * Maximum number of iterations. Default as 100
+     */
+    private int maxIterations = 100;
+
+    /**
+     * Initial damping factor. Default as 1e-3
+     */
+    private double initDamping = 1e-3;
+
+    /**
+     * Ratio to increase or decrease the damping factor. Default as 10
+     */
+    private double dampingRatio = 10;
+
+    private int stopLossType = STOP_RELATIVE_LOSS;
+    private double stopLossThreshold = 1e-9;
+
+    // Workspace
+    private double[] theta;
+    private double[] newTheta;
+    private double[] jtj;
+    private double[] jtr;
+    private double[] a;
+    private double[] delta;
+    private double[] fx;
+    private double[] jacobian;
+
+    /**
+     * Constructor
+     *
+     * @param objectiveFunction Objective Function
+     */
+    public LevenbergMarquardt(ObjectiveFunction objectiveFunction) {
+        // Throw Exception
+        if (objectiveFunction == null)
+            throw new NullPointerException("objectiveFunction can't not be null");
+
+        // Set
+        this.objectiveFunction = objectiveFunction;
+        this.batchObjectiveFunction = BatchObjectiveFunctionAdapter.of(objectiveFunction);
+
+        if (this.objectiveFunction.getParameter() != null)
+            this.initParameters = this.objectiveFunction.getParameter().clone();
+    }
+
+    /**
+     * Create a new solver with the same settings on another objective function, so both solvers can run
+     * concurrently.
+     *
+     * @param objectiveFunction Objective Function of the new solver
+     * @return Return the new solver
+     */
+    public LevenbergMarquardt copy(ObjectiveFunction objectiveFunction) {
+        LevenbergMarquardt copy = new LevenbergMarquardt(objectiveFunction);
+
+        if (this.initParameters != null)
+            copy.initParameters = this.initParameters.clone();
+        if (this.parameterRange != null) {
+            copy.parameterRange = new double[this.parameterRange.length][];
+            for (int pi = 0; pi < this.parameterRange.length; pi++) {
+                copy.parameterRange[pi] = this.parameterRange[pi].clone();
+            }
+        }
+        copy.maxIterations = this.maxIterations;
+        copy.initDamping = this.initDamping;
+        copy.dampingRatio = this.dampingRatio;
+        copy.stopLossType = this.stopLossType;
+        copy.stopLossThreshold = this.stopLossThreshold;
+
+        return copy;
+    }
+
+    // region Getter and Setter
+
+    // region initParameters
+
+    /**
+     * Set the initial parameters
+     *
+     * @param initParameters Initial parameters
+     */
+    public void setInitParameters(double[] initParameters) {
+        if (this.objectiveFunction.getParameter() != null && initParameters.length != this.objectiveFunction.getParameter().length)
+            throw new IllegalArgumentException("Length of initParameters (" + initParameters.length + ") must be = " + this.objectiveFunction.getParameter().length);
+
+        this.initParameters = initParameters;
+    }
+
+    /**
+     * Get the initial parameters
+     *
+     * @return Return the initial parameters
+     */
+    public double[] getInitParameters() {
+        return this.initParameters;
+    }
+
+    // endregion
+
+    // region Parameters range
+
+    /**
+     * Get the parameters range
+     *
+     * @return Return the parameters range in double[para][2] { {min,max}, {min, max} }
+     */
+    public double[][] getParameterRange() {
+        return this.parameterRange;
+    }
+
+    /**
+     * Set the parameters range
+     *
+     * @param parameterRange Parameters range in double[para][2] { {min,max}, {min, max} }. Set min or max as NaN to
+     *                       disable the bound.
+     */
+    public void setParameterRange(double[][] parameterRange) {
+        this.parameterRange = parameterRange;
+    }
+
+    // endregion
+
+    // region maxIterations
+
+    /**
+     * Set the maximum number of iterations
+     *
+     * @param maxIterations Maximum number of iterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations <= 0)
+            throw new IllegalArgumentException("maxIterations(" + maxIterations + ") must be > 0.");
+
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Get the maximum number of iterations
+     *
+     * @return Return the maximum number of iterations
+     */
+    public int getMaxIterations() {
+        return this.maxIterations;
+    }
+
+    // endregion
+
+    // region damping
+
+    /**
+     * Set the initial damping factor. A large damping factor behaves like gradient descent and a small one behaves
+     * like Gauss-Newton.
+     *
+     * @param initDamping Initial damping factor. Must be &gt; 0
+     */
+    public void setInitDamping(double initDamping) {
+        if (initDamping <= 0)
+            throw new IllegalArgumentException("initDamping(" + initDamping + ") must be > 0.");
+
+        this.initDamping = initDamping;
+    }
+
+    /**
+     * Get the initial damping factor
+     *
+     * @return Return the initial damping factor
+     */
+    public double getInitDamping() {
+        return this.initDamping;
+    }
+
+    /**
+     * Set the ratio to increase the damping factor on a rejected step or decrease it on an accepted step.
+     *
+     * @param dampingRatio Ratio. Must be &gt; 1
+     */
+    public void setDampingRatio(double dampingRatio) {
+        if (dampingRatio <= 1)
+            throw new IllegalArgumentException("dampingRatio(" + dampingRatio + ") must be > 1.");
+
+        this.dampingRatio = dampingRatio;
+    }
+
+    /**
+     * Get the ratio to increase or decrease the damping factor
+     *
+     * @return Return the ratio
+     */
+    public double getDampingRatio() {
+        return this.dampingRatio;
+    }
+
+    // endregion
+
+    // region stop loss threshold
+
+    /**
+     * Set the absolute loss threshold
+     * Iteration will be stop if the average loss is &lt; threshold
+     *
+     * @param threshold Threshold
+     */
+    public void setStopAbsoluteLoss(double threshold) {
+        this.stopLossType = STOP_ABSOLUTE_LOSS;
+        this.stopLossThreshold = threshold;
+    }
+
+    /**
+     * Set the relative loss threshold
+     * Iteration will be stop if the average loss improvement &lt; threshold in %;
+     *
+     * @param threshold Threshold
+     */
+    public void setStopRelativeLoss(double threshold) {
+        this.stopLossType = STOP_RELATIVE_LOSS;
+        this.stopLossThreshold = threshold;
+    }
+
+    // endregion
+
+    // endregion
+
+    /**
+     * Optimize the parameters in the objective function.
+     *
+     * @param x Training data x
+     * @param y Training data y
+     * @return Return the optimized parameters
+     */
+    public double[] solve(double[] x, double[] y) {
+        int numOfParameters = this.initParameters != null ? this.initParameters.length : this.objectiveFunction.getParameter().length;
+        double[] result = new double[numOfParameters];
+        solve(x, y, this.initParameters, result);
+        this.batchObjectiveFunction.setParameter(result);
+
+        return result;
+    }
+
+    /**
+     * Optimize the parameters without allocating the result.
+     *
+     * @param x              Training data x
+     * @param y              Training data y
+     * @param initParameters Initial parameters. Set it as null to start from 1.
+     * @param result         Output of the optimized parameters
+     * @return Return the loss of the optimized parameters
+     */
+    double solve(double[] x, double[] y, double[] initParameters, double[] result) {
+        // Throw Exception
+        if (x.length != y.length)
+            throw new IllegalArgumentException("The length of x (" + x.length + ") must be equal to the length of y (" + y.length + ").");
+
+        // Initialize
+        int numOfParameters = result.length;
+        ensure(numOfParameters);
+        if (initParameters != null)
+            System.arraycopy(initParameters, 0, this.theta, 0, numOfParameters);
+        else {
+            for (int i = 0; i < numOfParameters; i++) {
+                this.theta[i] = 1;
+            }
+        }
+        project(this.theta);
+        double currentLoss = Double.NaN;
+
+        // Iteration
+        double damping = this.initDamping;
+        double previousLoss = -1;
+        int iter = 0;
+        boolean stopIteration = false;
+        while (!stopIteration && iter < this.maxIterations) {
+
+            // Normal equations on current theta
+            double loss = normalEquations(x, y);
+            currentLoss = loss;
+
+            // Find an improving step
+            boolean accepted = false;
+            double newLoss = loss;
+            while (!accepted && damping < MAX_DAMPING) {
+                if (solveDamped(damping, numOfParameters)) {
+                    for (int pi = 0; pi < numOfParameters; pi++) {
+                        this.newTheta[pi] = this.theta[pi] + this.delta[pi];
+                    }
+                    project(this.newTheta);
+
+                    newLoss = loss(x, y, this.newTheta);
+                    if (newLoss < loss)
+                        accepted = true;
+                }
+
+                if (accepted)
+                    damping = Math.max(damping / this.dampingRatio, Double.MIN_NORMAL);
+                else
+                    damping *= this.dampingRatio;
+            }
+
+            // No improving step, converged
+            if (!accepted)
+                break;
+
+            // Update theta
+            double[] temp = this.theta;
+            this.theta = this.newTheta;
+            this.newTheta = temp;
+            currentLoss = newLoss;
+
+            // Stop
+
+            //    Get loss threshold
+            double lossThreshold = this.stopLossThreshold;
+            if (this.stopLossType == STOP_RELATIVE_LOSS) {
+                lossThreshold = newLoss * this.stopLossThreshold;
+            }
+
+            //    Check
+            double lossDiff = (previousLoss < 0 ? loss : previousLoss) - newLoss;
+            if (lossDiff > 0 && lossDiff < lossThreshold)
+                stopIteration = true;
+
+            //    Update
+            previousLoss = newLoss;
+
+            iter++;
+        }
+
+        // Copy out of the workspace so that the result is not overwritten by the next solve
+        System.arraycopy(this.theta, 0, result, 0, numOfParameters);
+
+        return currentLoss;
+    }
+
+    /**
+     * Allocate the workspace if the number of parameters is changed
+     *
+     * @param numOfParameters Number of parameters
+     */
+    private void ensure(int numOfParameters) {
+        if (this.theta == null || this.theta.length != numOfParameters) {
+            this.theta = new double[numOfParameters];
+            this.newTheta = new double[numOfParameters];
+            this.jtj = new double[numOfParameters * numOfParameters];
+            this.jtr = new double[numOfParameters];
+            this.a = new double[numOfParameters * numOfParameters];
+            this.delta = new double[numOfParameters];
+            this.fx = new double[StochasticGradientDescent.BLOCK_SIZE];
+            this.jacobian = new double[StochasticGradientDescent.BLOCK_SIZE * numOfParameters];
+        }
+    }
+
+    /**
+     * Project theta into the parameter range
+     *
+     * @param theta theta
+     */
+    private void project(double[] theta) {
+        if (this.parameterRange == null)
+            return;
+
+        for (int pi = 0; pi < theta.length; pi++) {
+            if (!Double.isNaN(this.parameterRange[pi][0]) && theta[pi] < this.parameterRange[pi][0]) {
+                theta[pi] = this.parameterRange[pi][0];
+            } else if (!Double.isNaN(this.parameterRange[pi][1]) && theta[pi] > this.parameterRange[pi][1]) {
+                theta[pi] = this.parameterRange[pi][1];
+            }
+        }
+    }
+
+    /**
+     * Calculate J^T * J and J^T * (y - f(x)) on the current theta. Samples with non-finite values are ignored in the
+     * normal equations. The loss is calculated in the same way as {@link #loss(double[], double[], double[])}.
+     *
+     * @param x x
+     * @param y y
+     * @return Return the mean loss on the current theta. Infinity if any residual is not finite.
+     */
+    private double normalEquations(double[] x, double[] y) {
+        int numOfParameters = this.theta.length;
+        int blockSize = StochasticGradientDescent.BLOCK_SIZE;
+        double[] jtj = this.jtj;
+        double[] jtr = this.jtr;
+        for (int i = 0; i < jtj.length; i++) {
+            jtj[i] = 0;
+        }
+        for (int i = 0; i < jtr.length; i++) {
+            jtr[i] = 0;
+        }
+
+        this.batchObjectiveFunction.setParameter(this.theta);
+        double lossSum = 0;
+        boolean finite = true;
+        for (int from = 0; from < x.length; from += blockSize) {
+            int to = Math.min(from + blockSize, x.length);
+            this.batchObjectiveFunction.functionAndDerivative(x, from, to, this.fx, this.jacobian);
+
+            for (int si = 0; si < to - from; si++) {
+                double r = y[from + si] - this.fx[si];
+                int row = si * numOfParameters;
+                if (!Double.isFinite(r)) {
+                    finite = false;
+                    continue;
+                }
+                lossSum += r * r / 2;
+                if (!isFinite(this.jacobian, row, numOfParameters))
+                    continue;
+
+                // Upper triangle only
+                for (int i = 0; i < numOfParameters; i++) {
+                    double ji = this.jacobian[row + i];
+                    jtr[i] += ji * r;
+                    for (int j = i; j < numOfParameters; j++) {
+                        jtj[i * numOfParameters + j] += ji * this.jacobian[row + j];
+                    }
+                }
+            }
+        }
+
+        return meanLoss(lossSum, x.length, finite);
+    }
+
+    /**
+     * Calculate the mean loss over all samples
+     *
+     * @param x     x
+     * @param y     y
+     * @param theta theta
+     * @return Return the mean loss. Infinity if any residual is not finite, so that the step is rejected.
+     */
+    private double loss(double[] x, double[] y, double[] theta) {
+        int blockSize = StochasticGradientDescent.BLOCK_SIZE;
+
+        this.batchObjectiveFunction.setParameter(theta);
+        double lossSum = 0;
+        for (int from = 0; from < x.length; from += blockSize) {
+            int to = Math.min(from + blockSize, x.length);
+            this.batchObjectiveFunction.function(x, from, to, this.fx);
+
+            for (int si = 0; si < to - from; si++) {
+                double r = y[from + si] - this.fx[si];
+                if (!Double.isFinite(r))
+                    return Double.POSITIVE_INFINITY;
+                lossSum += r * r / 2;
+            }
+        }
+
+        return meanLoss(lossSum, x.length, true);
+    }
+
+    /**
+     * Mean loss of the samples. Dropping the non-finite samples would lower the mean and make the losses of two
+     * thetas incomparable, so the loss is Infinity if any residual is not finite.
+     *
+     * @param lossSum      Sum of the finite losses
+     * @param numOfSamples Number of samples
+     * @param finite       Are all residuals finite?
+     * @return Return the mean loss
+     */
+    private static double meanLoss(double lossSum, int numOfSamples, boolean finite) {
+        if (!finite)
+            return Double.POSITIVE_INFINITY;
+
+        return numOfSamples == 0 ? 0 : lossSum / numOfSamples;
+    }
+
+    /**
+     * Solve (J^T * J + damping * diag(J^T * J)) * delta = J^T * (y - f(x)) by Cholesky decomposition.
+     *
+     * @param damping         Damping factor
+     * @param numOfParameters Number of parameters
+     * @return Return false if the matrix is not positive definite
+     */
+    private boolean solveDamped(double damping, int numOfParameters) {
+        int n = numOfParameters;
+        double[] a = this.a;
+
+        // Damped matrix, lower triangle
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                a[i * n + j] = this.jtj[j * n + i];
+            }
+            double diagonal = this.jtj[i * n + i];
+            a[i * n + i] = diagonal + damping * (diagonal > 0 ? diagonal : 1);
+        }
+
+        // Cholesky decomposition, a = L * L^T
+        for (int j = 0; j < n; j++) {
+            double sum = a[j * n + j];
+            for (int k = 0; k < j; k++) {
+                sum -= a[j * n + k] * a[j * n + k];
+            }
+            if (!(sum > 0))
+                return false;
+            double diagonal = Math.sqrt(sum);
+            a[j * n + j] = diagonal;
+
+            for (int i = j + 1; i < n; i++) {
+                double value = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    value -= a[i * n + k] * a[j * n + k];
+                }
+                a[i * n + j] = value / diagonal;
+            }
+        }
+
+        // Forward substitution, L * z = J^T * r
+        double[] delta = this.delta;
+        for (int i = 0; i < n; i++) {
+            double value = this.jtr[i];
+            for (int k = 0; k < i; k++) {
+                value -= a[i * n + k] * delta[k];
+            }
+            delta[i] = value / a[i * n + i];
+        }
+
+        // Backward substitution, L^T * delta = z
+        for (int i = n - 1; i >= 0; i--) {
+            double value = delta[i];
+            for (int k = i + 1; k < n; k++) {
+                value -= a[k * n + i] * delta[k];
+            }
+            delta[i] = value / a[i * n + i];
+        }
+
+        return true;
+    }
+
+    private static boolean isFinite(double[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!Double.isFinite(values[i]))
+                return false;
+        }
+        return true;
+    }
+}
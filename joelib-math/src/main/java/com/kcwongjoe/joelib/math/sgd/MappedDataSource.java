@@ -0,0 +1,98 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link DataSource} on memory-mapped files of little-endian doubles, one file for x and one for y.
+ * <p>
+ * The files are mapped read-only in segments of up to 1 GiB, so the data are paged in by the operating system and only
+ * the blocks being read are copied to heap.
+ **/
+public class MappedDataSource implements DataSource {
+
+    /**
+     * Number of doubles in a mapped segment
+     */
+    private static final int SEGMENT_SIZE = 1 << 27;
+
+    private final long size;
+    private final DoubleBuffer[] xSegments;
+    private final DoubleBuffer[] ySegments;
+
+    /**
+     * Constructor
+     *
+     * @param x File of data x in little-endian doubles
+     * @param y File of data y in little-endian doubles
+     * @throws IOException Throw if the files can't be mapped
+     */
+    public MappedDataSource(Path x, Path y) throws IOException {
+        // Throw Exception
+        if (x == null || y == null)
+            throw new NullPointerException("x and y can't not be null");
+
+        try (FileChannel xChannel = FileChannel.open(x, StandardOpenOption.READ);
+             FileChannel yChannel = FileChannel.open(y, StandardOpenOption.READ)) {
+            long xSize = xChannel.size();
+            long ySize = yChannel.size();
+            if (xSize % Double.BYTES != 0)
+                throw new IllegalArgumentException("The size of x (" + xSize + " bytes) must be a multiple of " + Double.BYTES + ".");
+            if (xSize != ySize)
+                throw new IllegalArgumentException("The size of x (" + xSize + " bytes) must be equal to the size of y (" + ySize + " bytes).");
+
+            this.size = xSize / Double.BYTES;
+            this.xSegments = map(xChannel, this.size);
+            this.ySegments = map(yChannel, this.size);
+        }
+    }
+
+    /**
+     * Map a file in segments
+     *
+     * @param channel File channel
+     * @param size    Number of doubles in the file
+     * @return Return the segments
+     * @throws IOException Throw if the file can't be mapped
+     */
+    private static DoubleBuffer[] map(FileChannel channel, long size) throws IOException {
+        DoubleBuffer[] segments = new DoubleBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int i = 0; i < segments.length; i++) {
+            long from = (long) i * SEGMENT_SIZE;
+            long length = Math.min(SEGMENT_SIZE, size - from);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, from * Double.BYTES, length * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+        }
+        return segments;
+    }
+
+    @Override
+    public long size() {
+        return this.size;
+    }
+
+    @Override
+    public void read(long from, int length, double[] x, double[] y) {
+        // Throw Exception
+        if (from < 0 || length < 0 || from + length > this.size)
+            throw new IndexOutOfBoundsException("Samples [" + from + ", " + (from + length) + ") out of [0, " + this.size + ").");
+
+        // Absolute bulk reads do not touch the buffer position, so concurrent reads are safe
+        int offset = 0;
+        while (offset < length) {
+            long index = from + offset;
+            int segment = (int) (index / SEGMENT_SIZE);
+            int segmentIndex = (int) (index % SEGMENT_SIZE);
+            int count = Math.min(length - offset, SEGMENT_SIZE - segmentIndex);
+
+            this.xSegments[segment].get(segmentIndex, x, offset, count);
+            this.ySegments[segment].get(segmentIndex, y, offset, count);
+            offset += count;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Result of {@link MultiStartSolver}
+ **/
+public class MultiStartResult {
+
+    private final double[][] initParameters;
+    private final double[][] parameters;
+    private final double[] losses;
+    private final int bestIndex;
+
+    /**
+     * Constructor
+     *
+     * @param initParameters Initial parameters of each start in double[start][parameter]
+     * @param parameters     Optimized parameters of each start in double[start][parameter]
+     * @param losses         Final mean loss of each start
+     */
+    public MultiStartResult(double[][] initParameters, double[][] parameters, double[] losses) {
+        this.initParameters = initParameters;
+        this.parameters = parameters;
+        this.losses = losses;
+
+        // Find the best, NaN is the worst
+        int best = 0;
+        for (int i = 1; i < losses.length; i++) {
+            if (Double.isNaN(losses[best]) || losses[i] < losses[best])
+                best = i;
+        }
+        this.bestIndex = best;
+    }
+
+    /**
+     * Get the number of starts
+     *
+     * @return Return the number of starts
+     */
+    public int getNumOfStarts() {
+        return this.losses.length;
+    }
+
+    /**
+     * Get the index of the start with the lowest final loss
+     *
+     * @return Return the index of the best start
+     */
+    public int getBestIndex() {
+        return this.bestIndex;
+    }
+
+    /**
+     * Get the optimized parameters of the best start
+     *
+     * @return Return the best parameters
+     */
+    public double[] getBestParameters() {
+        return this.parameters[this.bestIndex];
+    }
+
+    /**
+     * Get the final mean loss of the best start
+     *
+     * @return Return the best loss
+     */
+    public double getBestLoss() {
+        return this.losses[this.bestIndex];
+    }
+
+    /**
+     * Get the initial parameters of all starts
+     *
+     * @return Return the initial parameters in double[start][parameter]
+     */
+    public double[][] getInitParameters() {
+        return this.initParameters;
+    }
+
+    /**
+     * Get the optimized parameters of all starts
+     *
+     * @return Return the optimized parameters in double[start][parameter]
+     */
+    public double[][] getParameters() {
+        return this.parameters;
+    }
+
+    /**
+     * Get the final mean loss of all starts
+     *
+     * @return Return the losses in double[start]
+     */
+    public double[] getLosses() {
+        return this.losses;
+    }
+}
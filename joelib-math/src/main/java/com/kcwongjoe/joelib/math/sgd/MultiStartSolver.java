@@ -0,0 +1,189 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-start solver for non-convex problems.
+ * <p>
+ * Run independent {@link StochasticGradientDescent} from several initial parameters concurrently and pick the result
+ * with the lowest final loss. Each start runs on its own copy of the solver and its own objective function created by
+ * the {@link ObjectiveFunctionFactory}.
+ **/
+public class MultiStartSolver {
+
+    private final StochasticGradientDescent solver;
+    private final ObjectiveFunctionFactory objectiveFunctionFactory;
+
+    /**
+     * Thread pool. Set it as null to use the common pool.
+     */
+    private ExecutorService executorService = null;
+
+    /**
+     * Seed of the initial parameters sampling. Set it as null to use a random seed.
+     */
+    private Long seed = null;
+
+    /**
+     * Constructor
+     *
+     * @param solver                   Solver providing the settings of all starts. It is not modified.
+     * @param objectiveFunctionFactory Factory creating an objective function for each start
+     */
+    public MultiStartSolver(StochasticGradientDescent solver, ObjectiveFunctionFactory objectiveFunctionFactory) {
+        // Throw Exception
+        if (solver == null)
+            throw new NullPointerException("solver can't not be null");
+        if (objectiveFunctionFactory == null)
+            throw new NullPointerException("objectiveFunctionFactory can't not be null");
+
+        this.solver = solver;
+        this.objectiveFunctionFactory = objectiveFunctionFactory;
+    }
+
+    // region Getter and Setter
+
+    /**
+     * Set the thread pool
+     *
+     * @param executorService Thread pool. Set it as null to use {@link ForkJoinPool#commonPool()}.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     * Get the thread pool
+     *
+     * @return Return the thread pool. Null if the common pool is used.
+     */
+    public ExecutorService getExecutorService() {
+        return this.executorService;
+    }
+
+    /**
+     * Set the seed of the initial parameters sampling
+     *
+     * @param seed Seed. Set it as null to use a random seed.
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Get the seed of the initial parameters sampling
+     *
+     * @return Return the seed. Null if a random seed is used.
+     */
+    public Long getSeed() {
+        return this.seed;
+    }
+
+    // endregion
+
+    /**
+     * Sample initial parameters uniformly within the parameter range of the solver. Parameters without a finite min
+     * and max keep the initial parameters of the solver.
+     *
+     * @param numOfStarts Number of starts
+     * @return Return the initial parameters in double[start][parameter]
+     */
+    public double[][] sampleInitParameters(int numOfStarts) {
+        if (numOfStarts <= 0)
+            throw new IllegalArgumentException("numOfStarts (" + numOfStarts + ") must be > 0.");
+
+        double[] initParameters = this.solver.getInitParameters();
+        if (initParameters == null)
+            throw new IllegalStateException("The init parameters of the solver must be set.");
+        double[][] parameterRange = this.solver.getParameterRange();
+
+        Random random = this.seed != null ? new Random(this.seed) : new Random();
+        double[][] result = new double[numOfStarts][];
+        for (int i = 0; i < numOfStarts; i++) {
+            result[i] = initParameters.clone();
+            if (parameterRange == null)
+                continue;
+
+            for (int pi = 0; pi < result[i].length; pi++) {
+                double min = parameterRange[pi][0];
+                double max = parameterRange[pi][1];
+                if (Double.isFinite(min) && Double.isFinite(max))
+                    result[i][pi] = min + random.nextDouble() * (max - min);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Solve from initial parameters sampled within the parameter range of the solver.
+     *
+     * @param x           Training data x
+     * @param y           Training data y
+     * @param numOfStarts Number of starts
+     * @return Return the result
+     * @see #sampleInitParameters(int)
+     */
+    public MultiStartResult solve(double[] x, double[] y, int numOfStarts) {
+        return solve(x, y, sampleInitParameters(numOfStarts));
+    }
+
+    /**
+     * Solve from the given initial parameters concurrently.
+     *
+     * @param x              Training data x
+     * @param y              Training data y
+     * @param initParameters Initial parameters of each start in double[start][parameter]
+     * @return Return the result
+     */
+    public MultiStartResult solve(double[] x, double[] y, double[][] initParameters) {
+        // Throw Exception
+        if (x.length != y.length)
+            throw new IllegalArgumentException("The length of x (" + x.length + ") must be equal to the length of y (" + y.length + ").");
+        if (initParameters.length == 0)
+            throw new IllegalArgumentException("initParameters must not be empty.");
+
+        int numOfStarts = initParameters.length;
+        double[][] parameters = new double[numOfStarts][];
+        double[] losses = new double[numOfStarts];
+
+        // Submit
+        ExecutorService executor = this.executorService != null ? this.executorService : ForkJoinPool.commonPool();
+        List<Future<?>> futures = new ArrayList<>(numOfStarts);
+        for (int i = 0; i < numOfStarts; i++) {
+            final int startIndex = i;
+            Callable<Void> task = () -> {
+                StochasticGradientDescent startSolver = this.solver.copy(this.objectiveFunctionFactory.create());
+                startSolver.setInitParameters(initParameters[startIndex].clone());
+
+                parameters[startIndex] = startSolver.solve(x, y);
+                losses[startIndex] = startSolver.calculateLoss(x, y, parameters[startIndex]);
+                return null;
+            };
+            futures.add(executor.submit(task));
+        }
+
+        // Wait
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Fail to solve.", e.getCause());
+        }
+
+        return new MultiStartResult(initParameters, parameters, losses);
+    }
+}
@@ -0,0 +1,17 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Factory of {@link ObjectiveFunction}.
+ * <p>
+ * An objective function is stateful ({@link ObjectiveFunction#setParameter(double[])}), so solvers running
+ * concurrently must not share an instance. The factory gives each of them its own instance.
+ **/
+public interface ObjectiveFunctionFactory {
+
+    /**
+     * Create a new objective function
+     *
+     * @return Return a new instance which does not share any mutable state with other instances.
+     */
+    ObjectiveFunction create();
+}
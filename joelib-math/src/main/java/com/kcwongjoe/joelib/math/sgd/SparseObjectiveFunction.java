@@ -0,0 +1,32 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Objective Function whose df(x)/dtheta is mostly zero, e.g. a sum of peaks where a sample only feels the nearby
+ * peaks.
+ * <p>
+ * The solver asks for the non-zero entries in compressed sparse row (CSR) format and only accumulates them. Entry
+ * <code>e</code> of sample <code>x[i]</code>, with <code>rowStart[i - from] &lt;= e &lt; rowStart[i - from + 1]</code>,
+ * is df(x[i])/dtheta[columnIndex[e]] = values[e].
+ **/
+public interface SparseObjectiveFunction extends BatchObjectiveFunction {
+
+    /**
+     * Get the max number of non-zero entries of df(x)/dtheta per sample, which sizes the buffers of the solver.
+     *
+     * @return Return the max number of non-zero entries per sample
+     */
+    int getMaxNonZerosPerSample();
+
+    /**
+     * Calculate f(x) and the non-zero entries of df(x)/dtheta together
+     *
+     * @param x           x
+     * @param from        Index of the first sample, inclusive
+     * @param to          Index of the last sample, exclusive
+     * @param fx          Output f(x) in double[to - from]
+     * @param rowStart    Output index of the first entry of each sample in int[to - from + 1]. rowStart[0] is 0.
+     * @param columnIndex Output parameter index of the entries
+     * @param values      Output df(x)/dtheta of the entries
+     */
+    void functionAndSparseDerivative(double[] x, int from, int to, double[] fx, int[] rowStart, int[] columnIndex, double[] values);
+}
@@ -1,7 +1,5 @@
 package com.kcwongjoe.joelib.math.sgd;
 
-import com.kcwongjoe.joelib.JGeneralUtils;
-import com.kcwongjoe.joelib.math.CumulativeAverage;
 import com.kcwongjoe.joelib.math.sgd.gd.Adam;
 import com.kcwongjoe.joelib.math.sgd.gd.GradientDescentMethod;
 import com.kcwongjoe.joelib.math.sgd.lr_decay.LearningRateDecayMethod;
@@ -9,15 +7,48 @@ import com.kcwongjoe.joelib.math.sgd.lr_loss.L2LossFunc;
 import com.kcwongjoe.joelib.math.sgd.lr_loss.LossFunction;
 import com.kcwongjoe.joelib.math.sgd.regu.Regularization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Stochastic Gradient Descent
  **/
 public class StochasticGradientDescent {
 
+    /**
+     * Mini-batch sampling: Shuffle the samples on every epoch and split them into batches.
+     */
+    public static final int SAMPLING_SHUFFLE = 0;
+
+    /**
+     * Mini-batch sampling: Draw every batch randomly with replacement.
+     */
+    public static final int SAMPLING_WITH_REPLACEMENT = 1;
+
     private static final int STOP_ABSOLUTE_LOSS = 0;
     private static final int STOP_RELATIVE_LOSS = 1;
 
+    /**
+     * Maximum number of samples evaluated by one call of the objective function.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    private static final int CHECKPOINT_MAGIC = 0x53474443;
+    private static final int CHECKPOINT_VERSION = 3;
+
     private ObjectiveFunction objectiveFunction;
+
+    /**
+     * Batch version of the objective function. It is the objective function itself or an adapter.
+     */
+    private BatchObjectiveFunction batchObjectiveFunction;
     private double[] initParameters = null;
 
     /**
@@ -59,10 +90,112 @@ public class StochasticGradientDescent {
     private double stopLossThreshold = 0.01;
 
     /**
-     * Print detail during solving.
+     * Number of samples per gradient step. Set it to 0 to use all samples (Full batch).
+     */
+    private int batchSize = 0;
+
+    /**
+     * Mini-batch sampling method. Default as SAMPLING_SHUFFLE
+     */
+    private int samplingMethod = SAMPLING_SHUFFLE;
+
+    /**
+     * Seed of the mini-batch sampling. Set it as null to use a random seed.
+     */
+    private Long seed = null;
+
+    /**
+     * Number of samples read at a time from a streamed data source. Default as 65536
+     */
+    private int blockSize = 1 << 16;
+
+    /**
+     * Evaluate the samples on multiple threads.
+     */
+    private boolean parallel = false;
+
+    /**
+     * Minimum number of samples in a step to be evaluated in parallel.
+     */
+    private int parallelThreshold = 100000;
+
+    /**
+     * Thread pool for the parallel mode. Set it as null to use the common pool.
+     */
+    private ForkJoinPool forkJoinPool = null;
+
+    /**
+     * Evaluate the loss on all samples every N epochs. Default as 1
+     */
+    private int lossEvaluationInterval = 1;
+
+    /**
+     * Take the loss from the gradient evaluation instead of an extra pass. Default as false
+     */
+    private boolean lossFromGradientPass = false;
+
+    /**
+     * Listener of the training progress. Set it as null to disabled.
+     */
+    private TrainingListener trainingListener = null;
+
+    /**
+     * Receiver of the checkpoints. Set it as null to disabled.
+     */
+    private CheckpointListener checkpointListener = null;
+
+    /**
+     * Take a checkpoint every N epochs. 0 to take it on request only.
+     */
+    private int checkpointInterval = 0;
+
+    private volatile boolean checkpointRequested = false;
+
+    /**
+     * Validation data. Null if none.
+     */
+    private double[] validationX = null;
+    private double[] validationY = null;
+
+    /**
+     * Fraction of the training data held out for validation. 0 if none.
+     */
+    private double validationFraction = 0;
+
+    /**
+     * Evaluate the validation loss every N epochs. Default as 1
+     */
+    private int validationInterval = 1;
+
+    /**
+     * Stop after N validation evaluations without improvement. 0 to never stop on validation. Default as 10
+     */
+    private int validationPatience = 10;
+
+    /**
+     * Return the parameters with the best validation loss instead of the last ones. Default as true
      */
+    private boolean restoreBestParameters = true;
+
+    /**
+     * Best validation result of the last solve
+     */
+    private int bestEpoch = -1;
+    private double bestValidationLoss = Double.NaN;
+
+    /**
+     * Print the progress of every epoch by a {@link ConsoleTrainingListener} during solving.
+     *
+     * @deprecated Use {@link #setTrainingListener(TrainingListener)} with a {@link ConsoleTrainingListener} instead.
+     */
+    @Deprecated
     public boolean verbose = false;
 
+    /**
+     * Reusable scratch buffers
+     */
+    private Workspace workspace = null;
+
     /**
      * Constructor
      * @param objectiveFunction Objective Function
@@ -74,6 +207,7 @@ public class StochasticGradientDescent {
 
         // Set
         this.objectiveFunction = objectiveFunction;
+        this.batchObjectiveFunction = BatchObjectiveFunctionAdapter.of(objectiveFunction);
 
         if (this.objectiveFunction.getParameter() != null) {
             this.initParameters = this.objectiveFunction.getParameter().clone();
@@ -85,6 +219,51 @@ public class StochasticGradientDescent {
         init();
     }
 
+    /**
+     * Create a new solver with the same settings on another objective function. The optimizer and the learning rate
+     * decay method are copied without their internal state, so both solvers can run concurrently. The training
+     * listener, the checkpoint listener and the validation data are not copied. The validation fraction is copied.
+     *
+     * @param objectiveFunction Objective Function of the new solver
+     * @return Return the new solver
+     */
+    public StochasticGradientDescent copy(ObjectiveFunction objectiveFunction) {
+        StochasticGradientDescent copy = new StochasticGradientDescent(objectiveFunction);
+
+        if (this.initParameters != null)
+            copy.initParameters = this.initParameters.clone();
+        if (this.parameterRange != null) {
+            copy.parameterRange = new double[this.parameterRange.length][];
+            for (int pi = 0; pi < this.parameterRange.length; pi++) {
+                copy.parameterRange[pi] = this.parameterRange[pi].clone();
+            }
+        }
+        copy.maxEpochs = this.maxEpochs;
+        copy.initLearningRate = this.initLearningRate;
+        copy.gradientDescentMethod = this.gradientDescentMethod.copy();
+        copy.learningRateDecayMethod = this.learningRateDecayMethod != null ? this.learningRateDecayMethod.copy() : null;
+        copy.lossFunction = this.lossFunction;
+        copy.regularization = this.regularization;
+        copy.stopLossType = this.stopLossType;
+        copy.stopLossThreshold = this.stopLossThreshold;
+        copy.lossEvaluationInterval = this.lossEvaluationInterval;
+        copy.lossFromGradientPass = this.lossFromGradientPass;
+        copy.batchSize = this.batchSize;
+        copy.samplingMethod = this.samplingMethod;
+        copy.seed = this.seed;
+        copy.blockSize = this.blockSize;
+        copy.parallel = this.parallel;
+        copy.parallelThreshold = this.parallelThreshold;
+        copy.forkJoinPool = this.forkJoinPool;
+        copy.validationFraction = this.validationFraction;
+        copy.validationInterval = this.validationInterval;
+        copy.validationPatience = this.validationPatience;
+        copy.restoreBestParameters = this.restoreBestParameters;
+        copy.verbose = this.verbose;
+
+        return copy;
+    }
+
     private void init() {
         setInitLearningRate(0.1);
         setGradientDescentMethod(new Adam());
@@ -107,7 +286,7 @@ public class StochasticGradientDescent {
     // region initParameters
 
     public void setInitParameters(double[] initParameters) {
-        if (this.objectiveFunction.getParameter() != null && initParameters.length != this.objectiveFunction.getParameter().length)
+        if (initParameters != null && this.objectiveFunction.getParameter() != null && initParameters.length != this.objectiveFunction.getParameter().length)
             throw new IllegalArgumentException("Length of initParameters (" + initParameters.length + ") must be = " + this.objectiveFunction.getParameter().length);
 
         this.initParameters = initParameters;
@@ -266,7 +445,7 @@ public class StochasticGradientDescent {
 
     /**
      * Set the absolute loss threshold
-     * Iteration will be stop if the average loss is &lt; threshold
+     * Iteration will be stop if the average loss improvement per epoch between two loss evaluations is &lt; threshold
      *
      * @param threshold Threshold
      */
@@ -277,7 +456,8 @@ public class StochasticGradientDescent {
 
     /**
      * Set the relative loss threshold
-     * Iteration will be stop if the average loss improvement &lt; threshold in %;
+     * Iteration will be stop if the average loss improvement per epoch between two loss evaluations &lt; threshold in
+     * %;
      *
      * @param threshold Threshold
      */
@@ -286,8 +466,438 @@ public class StochasticGradientDescent {
         this.stopLossThreshold = threshold;
     }
 
+    /**
+     * Evaluate the loss on all samples every N epochs only. The extra forward pass of the loss is skipped on the other
+     * epochs, which get a NaN loss in the {@link TrainingListener}. The stop criteria use the average improvement
+     * per epoch.
+     *
+     * @param interval Number of epochs between loss evaluations. Default as 1
+     */
+    public void setLossEvaluationInterval(int interval) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval (" + interval + ") must be > 0.");
+
+        this.lossEvaluationInterval = interval;
+    }
+
+    /**
+     * Get the number of epochs between loss evaluations
+     *
+     * @return Return the number of epochs between loss evaluations
+     */
+    public int getLossEvaluationInterval() {
+        return this.lossEvaluationInterval;
+    }
+
+    /**
+     * Take the loss of an epoch from its gradient evaluation, so no extra forward pass is needed. The loss is then
+     * the loss before the update of the epoch, i.e. the stop criteria lag one epoch behind. In mini-batch mode, it
+     * is the average loss of the batches, each evaluated before its own update.
+     * The loss evaluation interval is ignored in this mode.
+     *
+     * @param lossFromGradientPass Enable?
+     */
+    public void setLossFromGradientPass(boolean lossFromGradientPass) {
+        this.lossFromGradientPass = lossFromGradientPass;
+    }
+
+    /**
+     * Is the loss taken from the gradient evaluation?
+     *
+     * @return Return true if the loss is taken from the gradient evaluation
+     */
+    public boolean isLossFromGradientPass() {
+        return this.lossFromGradientPass;
+    }
+
+    // endregion
+
+    // region mini-batch
+
+    /**
+     * Set the mini-batch size. Each gradient step will only evaluate <code>batchSize</code> samples and an epoch
+     * contains ceil(number of samples / batchSize) steps.
+     *
+     * @param batchSize Number of samples per step. Set it as 0 to use all samples on every step. Default as 0.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 0)
+            throw new IllegalArgumentException("batchSize(" + batchSize + ") must be >= 0.");
+
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Get the mini-batch size
+     *
+     * @return Return the mini-batch size. 0 means full batch.
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Set the mini-batch sampling method
+     *
+     * @param samplingMethod SAMPLING_SHUFFLE or SAMPLING_WITH_REPLACEMENT
+     */
+    public void setSamplingMethod(int samplingMethod) {
+        if (samplingMethod != SAMPLING_SHUFFLE && samplingMethod != SAMPLING_WITH_REPLACEMENT)
+            throw new IllegalArgumentException("samplingMethod must be SAMPLING_SHUFFLE or SAMPLING_WITH_REPLACEMENT");
+
+        this.samplingMethod = samplingMethod;
+    }
+
+    /**
+     * Get the mini-batch sampling method
+     *
+     * @return Return SAMPLING_SHUFFLE or SAMPLING_WITH_REPLACEMENT
+     */
+    public int getSamplingMethod() {
+        return this.samplingMethod;
+    }
+
+    /**
+     * Set the seed of the mini-batch sampling.
+     *
+     * @param seed Seed. Set it as null to use a random seed.
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Get the seed of the mini-batch sampling.
+     *
+     * @return Return the seed. Null if a random seed is used.
+     */
+    public Long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Set the number of samples read at a time from a streamed {@link DataSource}. In mini-batch mode, it is rounded
+     * down to a multiple of the batch size, and an epoch visits the blocks in random order and shuffles the samples
+     * within each block. It is ignored for arrays, which are used as a single block.
+     *
+     * @param blockSize Number of samples per block. Default as 65536
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("blockSize (" + blockSize + ") must be > 0.");
+
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Get the number of samples read at a time from a streamed data source
+     *
+     * @return Return the number of samples per block
+     */
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+
+    // endregion
+
+    // region parallel
+
+    /**
+     * Evaluate the samples on multiple threads. Default as false.
+     * <p>
+     * The samples are split into fixed chunks and the partial sums of the chunks are reduced in chunk order, so the
+     * result does not depend on the thread scheduling. The objective function must support concurrent calls of
+     * {@link BatchObjectiveFunction#functionAndDerivative} and {@link BatchObjectiveFunction#function} on different
+     * ranges.
+     *
+     * @param parallel Enable the parallel mode?
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Is the parallel mode enabled?
+     *
+     * @return Return true if the parallel mode is enabled.
+     */
+    public boolean isParallel() {
+        return this.parallel;
+    }
+
+    /**
+     * Set the minimum number of samples in a step to be evaluated in parallel. Smaller steps are evaluated on the
+     * calling thread.
+     *
+     * @param parallelThreshold Number of samples. Default as 100000.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("parallelThreshold(" + parallelThreshold + ") must be >= 0.");
+
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Get the minimum number of samples in a step to be evaluated in parallel.
+     *
+     * @return Return the number of samples.
+     */
+    public int getParallelThreshold() {
+        return this.parallelThreshold;
+    }
+
+    /**
+     * Set the thread pool of the parallel mode.
+     *
+     * @param forkJoinPool Thread pool. Set it as null to use {@link ForkJoinPool#commonPool()}.
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Get the thread pool of the parallel mode.
+     *
+     * @return Return the thread pool. Null if the common pool is used.
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return this.forkJoinPool;
+    }
+
+    // endregion
+
+    // region training listener
+
+    /**
+     * Set the listener of the training progress
+     *
+     * @param trainingListener Listener. Set it as null to disabled.
+     */
+    public void setTrainingListener(TrainingListener trainingListener) {
+        this.trainingListener = trainingListener;
+    }
+
+    /**
+     * Get the listener of the training progress
+     *
+     * @return Return the listener. Null if disabled.
+     */
+    public TrainingListener getTrainingListener() {
+        return this.trainingListener;
+    }
+
     // endregion
 
+    // region checkpoint
+
+    /**
+     * Set the receiver of the checkpoints
+     *
+     * @param checkpointListener Receiver. Set it as null to disabled.
+     * @param interval           Take a checkpoint every N epochs. Set it as 0 to take it on
+     *                           {@link #requestCheckpoint()} only.
+     */
+    public void setCheckpointListener(CheckpointListener checkpointListener, int interval) {
+        if (interval < 0)
+            throw new IllegalArgumentException("interval (" + interval + ") must be >= 0.");
+
+        this.checkpointListener = checkpointListener;
+        this.checkpointInterval = interval;
+    }
+
+    /**
+     * Get the receiver of the checkpoints
+     *
+     * @return Return the receiver. Null if disabled.
+     */
+    public CheckpointListener getCheckpointListener() {
+        return this.checkpointListener;
+    }
+
+    /**
+     * Get the checkpoint interval
+     *
+     * @return Return the number of epochs between checkpoints. 0 if on request only.
+     */
+    public int getCheckpointInterval() {
+        return this.checkpointInterval;
+    }
+
+    /**
+     * Request a checkpoint at the end of the current epoch. It can be called from any thread.
+     */
+    public void requestCheckpoint() {
+        this.checkpointRequested = true;
+    }
+
+    /**
+     * Throw if a checkpoint listener is set but the gradient descent method or the learning rate decay method can't be
+     * checkpointed, so that it fails before the first epoch instead of at the first checkpoint.
+     */
+    private void checkCheckpointSupport() {
+        if (this.checkpointListener == null)
+            return;
+
+        if (!this.gradientDescentMethod.supportsCheckpoint())
+            throw new IllegalArgumentException(this.gradientDescentMethod.getClass().getName() + " does not support checkpoint.");
+        if (this.learningRateDecayMethod != null && !this.learningRateDecayMethod.supportsCheckpoint())
+            throw new IllegalArgumentException(this.learningRateDecayMethod.getClass().getName() + " does not support checkpoint.");
+    }
+
+    // endregion
+
+    // region validation
+
+    /**
+     * Set the validation data. The validation loss is evaluated every N epochs, see
+     * {@link #setValidationInterval(int)}, and the iteration stops if it does not improve for
+     * {@link #setValidationPatience(int)} evaluations. It replaces the validation fraction.
+     *
+     * @param x Validation data x. Set it as null to disabled.
+     * @param y Validation data y. Set it as null to disabled.
+     */
+    public void setValidationData(double[] x, double[] y) {
+        // Throw Exception
+        if ((x == null) != (y == null))
+            throw new NullPointerException("x and y must be both null or both not null");
+        if (x != null) {
+            if (x.length != y.length)
+                throw new IllegalArgumentException("The length of x (" + x.length + ") must be equal to the length of y (" + y.length + ").");
+            if (x.length == 0)
+                throw new IllegalArgumentException("The validation data can't not be empty.");
+        }
+
+        this.validationX = x;
+        this.validationY = y;
+        if (x != null)
+            this.validationFraction = 0;
+    }
+
+    /**
+     * Get the validation data x
+     *
+     * @return Return the validation data x. Null if none.
+     */
+    public double[] getValidationX() {
+        return this.validationX;
+    }
+
+    /**
+     * Get the validation data y
+     *
+     * @return Return the validation data y. Null if none.
+     */
+    public double[] getValidationY() {
+        return this.validationY;
+    }
+
+    /**
+     * Hold out a random fraction of the training data for validation. The split depends on the seed only, see
+     * {@link #setSeed(Long)}. It replaces the validation data.
+     *
+     * @param fraction Fraction of the training data, between 0 and 1. Set it as 0 to disabled.
+     */
+    public void setValidationFraction(double fraction) {
+        if (!(fraction >= 0 && fraction < 1))
+            throw new IllegalArgumentException("fraction (" + fraction + ") must be >= 0 and < 1.");
+
+        this.validationFraction = fraction;
+        if (fraction > 0) {
+            this.validationX = null;
+            this.validationY = null;
+        }
+    }
+
+    /**
+     * Get the fraction of the training data held out for validation
+     *
+     * @return Return the fraction. 0 if disabled.
+     */
+    public double getValidationFraction() {
+        return this.validationFraction;
+    }
+
+    /**
+     * Evaluate the validation loss every N epochs
+     *
+     * @param interval Number of epochs between validation evaluations. Default as 1
+     */
+    public void setValidationInterval(int interval) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval (" + interval + ") must be > 0.");
+
+        this.validationInterval = interval;
+    }
+
+    /**
+     * Get the number of epochs between validation evaluations
+     *
+     * @return Return the number of epochs between validation evaluations
+     */
+    public int getValidationInterval() {
+        return this.validationInterval;
+    }
+
+    /**
+     * Stop the iteration if the validation loss does not improve for N evaluations in a row
+     *
+     * @param patience Number of validation evaluations. Set it as 0 to never stop on validation. Default as 10
+     */
+    public void setValidationPatience(int patience) {
+        if (patience < 0)
+            throw new IllegalArgumentException("patience (" + patience + ") must be >= 0.");
+
+        this.validationPatience = patience;
+    }
+
+    /**
+     * Get the validation patience
+     *
+     * @return Return the number of validation evaluations without improvement before stopping. 0 if never.
+     */
+    public int getValidationPatience() {
+        return this.validationPatience;
+    }
+
+    /**
+     * Return the parameters with the best validation loss instead of the parameters of the last epoch. The best
+     * parameters are only copied when the validation loss improves.
+     *
+     * @param restoreBestParameters Enable? Default as true
+     */
+    public void setRestoreBestParameters(boolean restoreBestParameters) {
+        this.restoreBestParameters = restoreBestParameters;
+    }
+
+    /**
+     * Are the parameters with the best validation loss returned?
+     *
+     * @return Return true if the best parameters are returned
+     */
+    public boolean isRestoreBestParameters() {
+        return this.restoreBestParameters;
+    }
+
+    /**
+     * Get the epoch with the best validation loss in the last solve
+     *
+     * @return Return the epoch. -1 if there is no validation.
+     */
+    public int getBestEpoch() {
+        return this.bestEpoch;
+    }
+
+    /**
+     * Get the best validation loss in the last solve
+     *
+     * @return Return the best mean validation loss. NaN if there is no validation.
+     */
+    public double getBestValidationLoss() {
+        return this.bestValidationLoss;
+    }
+
+    // endregion
 
     //endregion
 
@@ -299,127 +909,779 @@ public class StochasticGradientDescent {
      * @return Return the optimized parameters
      */
     public double[] solve(double[] x, double[] y) {
+        return solve(new ArrayDataSource(x, y));
+    }
+
+    /**
+     * Optimize the parameters in the objective function on training data read block by block, see
+     * {@link #setBlockSize(int)}.
+     *
+     * @param data Training data
+     * @return Return the optimized parameters
+     */
+    public double[] solve(DataSource data) {
         // Throw Exception
-        if (x.length != y.length)
-            throw new IllegalArgumentException("The length of x (" + x.length + ") must be equal to the length of y (" + y.length + ").");
+        if (data == null)
+            throw new NullPointerException("data can't not be null");
+        checkCheckpointSupport();
 
         // Initialize
-        int numOfSample = x.length;
+        long numOfSample = data.size();
         int numOfParameters = this.objectiveFunction.getParameter().length;
         this.gradientDescentMethod.Reset(numOfParameters);
         if (this.learningRateDecayMethod != null) this.learningRateDecayMethod.reset();
-        double currentLearningRate = this.initLearningRate;
+
+        // Mini-batch seed
+        long epochSeed = 0;
+        if (this.batchSize > 0 && numOfSample > 0)
+            epochSeed = this.seed != null ? this.seed : new Random().nextLong();
+
+        // Validation split seed
+        long splitSeed = 0;
+        if (this.validationFraction > 0)
+            splitSeed = this.seed != null ? this.seed : new Random().nextLong();
+
+        // Workspace
+        Workspace ws = workspace(data, numOfParameters);
+        ws.resetValidation();
 
         // Initialize theta
-        double[] theta;
         if (this.initParameters != null)
-            theta = this.initParameters.clone();
+            System.arraycopy(this.initParameters, 0, ws.theta, 0, numOfParameters);
         else {
-            theta = new double[numOfParameters];
             for (int i = 0; i < numOfParameters; i++) {
-                theta[i] = 1;
+                ws.theta[i] = 1;
             }
         }
 
+        return iterate(ws, data, 0, this.initLearningRate, -1, epochSeed, splitSeed);
+    }
+
+    /**
+     * Continue a solve from a checkpoint. The result is identical to the uninterrupted solve if the settings and the
+     * training data are the same.
+     *
+     * @param checkpoint Checkpoint from the {@link CheckpointListener}
+     * @param x          Training data x
+     * @param y          Training data y
+     * @return Return the optimized parameters
+     */
+    public double[] resume(byte[] checkpoint, double[] x, double[] y) {
+        return resume(checkpoint, new ArrayDataSource(x, y));
+    }
+
+    /**
+     * Continue a solve from a checkpoint on training data read block by block. The result is identical to the
+     * uninterrupted solve if the settings and the training data are the same.
+     *
+     * @param checkpoint Checkpoint from the {@link CheckpointListener}
+     * @param data       Training data
+     * @return Return the optimized parameters
+     */
+    public double[] resume(byte[] checkpoint, DataSource data) {
+        // Throw Exception
+        if (checkpoint == null)
+            throw new NullPointerException("checkpoint can't not be null");
+        if (data == null)
+            throw new NullPointerException("data can't not be null");
+        checkCheckpointSupport();
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint));
+
+            // Header
+            if (in.readInt() != CHECKPOINT_MAGIC)
+                throw new IllegalArgumentException("Invalid checkpoint.");
+            int version = in.readInt();
+            if (version < 1 || version > CHECKPOINT_VERSION)
+                throw new IllegalArgumentException("Unsupported checkpoint version (" + version + ").");
+
+            long numOfSample = version >= 3 ? in.readLong() : in.readInt();
+            int numOfParameters = in.readInt();
+            int batchSize = in.readInt();
+            int samplingMethod = in.readInt();
+            if (numOfSample != data.size())
+                throw new IllegalArgumentException("The number of samples (" + data.size() + ") does not match the checkpoint (" + numOfSample + ").");
+            if (numOfParameters != this.objectiveFunction.getParameter().length)
+                throw new IllegalArgumentException("The number of parameters (" + this.objectiveFunction.getParameter().length + ") does not match the checkpoint (" + numOfParameters + ").");
+            if (batchSize != this.batchSize || samplingMethod != this.samplingMethod)
+                throw new IllegalArgumentException("The mini-batch settings do not match the checkpoint.");
+
+            // Solver state
+            int epoch = in.readInt();
+            double currentLearningRate = in.readDouble();
+            double previousLoss = in.readDouble();
+            long epochSeed = in.readLong();
+            long splitSeed = version >= 2 ? in.readLong() : 0;
+            if (version < 2 && this.validationFraction > 0)
+                throw new IllegalArgumentException("The checkpoint has no validation split.");
+
+            Workspace ws = workspace(data, numOfParameters);
+            for (int pi = 0; pi < numOfParameters; pi++) {
+                ws.theta[pi] = in.readDouble();
+            }
+
+            // Validation state
+            ws.resetValidation();
+            if (version >= 2) {
+                ws.bestValidationLoss = in.readDouble();
+                ws.bestEpoch = in.readInt();
+                ws.numOfBadValidations = in.readInt();
+                if (ws.bestEpoch >= 0) {
+                    for (int pi = 0; pi < numOfParameters; pi++) {
+                        ws.bestTheta[pi] = in.readDouble();
+                    }
+                }
+            }
+
+            // Optimizer state
+            if (!in.readUTF().equals(this.gradientDescentMethod.getClass().getName()))
+                throw new IllegalArgumentException("The gradient descent method does not match the checkpoint.");
+            this.gradientDescentMethod.readState(in);
+
+            String decayMethod = in.readBoolean() ? in.readUTF() : null;
+            String expectedDecayMethod = this.learningRateDecayMethod != null ? this.learningRateDecayMethod.getClass().getName() : null;
+            if (decayMethod == null ? expectedDecayMethod != null : !decayMethod.equals(expectedDecayMethod))
+                throw new IllegalArgumentException("The learning rate decay method does not match the checkpoint.");
+            if (this.learningRateDecayMethod != null)
+                this.learningRateDecayMethod.readState(in);
+
+            return iterate(ws, data, epoch, currentLearningRate, previousLoss, epochSeed, splitSeed);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid checkpoint.", e);
+        }
+    }
+
+    /**
+     * Run the epochs from startEpoch
+     *
+     * @param ws                  Workspace with the current theta
+     * @param data                Training data
+     * @param startEpoch          First epoch to run
+     * @param currentLearningRate Learning rate of the previous epoch
+     * @param previousLoss        Loss of the last evaluated epoch. -1 if none.
+     * @param epochSeed           Seed of the mini-batch sampling
+     * @param splitSeed           Seed of the validation split
+     * @return Return the optimized parameters
+     */
+    private double[] iterate(Workspace ws, DataSource data, int startEpoch, double currentLearningRate, double previousLoss, long epochSeed, long splitSeed) {
+        long numOfInputSample = data.size();
+        int numOfParameters = ws.theta.length;
+
+        // Validation
+        double[] xValidation = this.validationX;
+        double[] yValidation = this.validationY;
+        if (this.validationFraction > 0) {
+            ArrayDataSource arrays = (ArrayDataSource) data;
+            ws.split(arrays.getX(), arrays.getY(), numOfHoldout(numOfInputSample), splitSeed);
+            data = new ArrayDataSource(ws.xTrain, ws.yTrain);
+            xValidation = ws.xValidation;
+            yValidation = ws.yValidation;
+        }
+        boolean validation = xValidation != null;
+        long numOfSample = data.size();
+
+        // Blocks. Arrays are used directly as a single block.
+        ArrayDataSource arrays = data instanceof ArrayDataSource ? (ArrayDataSource) data : null;
+        int blockSize = blockSize(numOfSample, arrays == null);
+        int numOfBlocks = arrays != null ? 1 : (int) ((numOfSample + blockSize - 1) / Math.max(blockSize, 1));
+
+        // Mini-batch
+        boolean miniBatch = this.batchSize > 0 && numOfSample > 0;
+        int batchSize = miniBatch ? Math.min(this.batchSize, blockSize) : 0;
+        if (miniBatch && arrays == null && (ws.blockOrder == null || ws.blockOrder.length != numOfBlocks))
+            ws.blockOrder = new int[numOfBlocks];
+
+        // Parameter range
+        ws.setBounds(this.parameterRange);
+
+        // Listener. Verbose prints by a console listener in front of the training listener.
+        TrainingListener listener = this.verbose ? new ConsoleTrainingListener(System.out, this.trainingListener) : this.trainingListener;
+        long startNanos = 0;
+        if (listener != null) {
+            listener.onStart(numOfParameters);
+            startNanos = System.nanoTime();
+        }
+
+        // Loss of the previous epoch for the learning rate decay. NaN if it was not evaluated.
+        double epochLoss = this.lossFromGradientPass || startEpoch % this.lossEvaluationInterval == 0 ? previousLoss : Double.NaN;
+
         // Iteration
         boolean stopIteration = false;
-        int iter = 0;
-        double previousLoss = -1;
+        int iter = startEpoch;
         while (!stopIteration && iter < this.maxEpochs) {
-            if (verbose)
-                System.out.print("Iteration = " + iter);
-
             // Learning Rate
             if (this.learningRateDecayMethod != null) {
-                currentLearningRate = this.learningRateDecayMethod.getLearningrate(this.initLearningRate, currentLearningRate, iter, previousLoss);
+                currentLearningRate = this.learningRateDecayMethod.getLearningrate(this.initLearningRate, currentLearningRate, iter, epochLoss);
             }
-            if (verbose)
-                System.out.print(" learning rate = " + currentLearningRate);
-
-            // Set current theta to objective function
-            this.objectiveFunction.setParameter(theta);
 
-            // Calculate f(x) and df(x)/da
-            double[] fx = this.objectiveFunction.function(x);
-            double[][] dfxd0 = this.objectiveFunction.derivativeFunctionParameters(x);
-
-            // Calculate derivative theta
-            double[][] derivativeThetaAll = new double[numOfSample][];  // [sample][parameter]
-            for (int si = 0; si < numOfSample; si++) {
-                derivativeThetaAll[si] = new double[numOfParameters];
-                for (int pi = 0; pi < numOfParameters; pi++) {
-                    derivativeThetaAll[si][pi] = this.lossFunction.derivativeLoss(y[si], fx[si], dfxd0[si][pi]);
+            // Gradient descent
+            double gradientPassLoss;
+            if (!miniBatch) {
+                this.batchObjectiveFunction.setParameter(ws.theta);
+                ws.accumulator.clear();
+                accumulate(ws, data, true, this.lossFromGradientPass);
+                gradientPassLoss = step(ws, currentLearningRate, this.lossFromGradientPass);
+            } else {
+                // Reseed on every epoch so that the batches of an epoch only depend on (seed, epoch)
+                ws.random.setSeed(epochSeed + iter * 0x9E3779B97F4A7C15L);
+
+                //    Shuffle the blocks
+                if (arrays == null) {
+                    int[] blockOrder = ws.blockOrder;
+                    for (int bi = 0; bi < numOfBlocks; bi++) {
+                        blockOrder[bi] = bi;
+                    }
+                    for (int bi = numOfBlocks - 1; bi > 0; bi--) {
+                        int swap = ws.random.nextInt(bi + 1);
+                        int temp = blockOrder[bi];
+                        blockOrder[bi] = blockOrder[swap];
+                        blockOrder[swap] = temp;
+                    }
                 }
-            }
-
-            // Calculate average derivative theta and regularization
-            double[] derivativeTheta = new double[numOfParameters];
-            for (int pi = 0; pi < numOfParameters; pi++) {
 
-                // Average
-                CumulativeAverage average = new CumulativeAverage();
-                for (int si = 0; si < numOfSample; si++) {
-                    average.add(derivativeThetaAll[si][pi]);
-                }
-                derivativeTheta[pi] = average.getMean();
+                double lossSum = 0;
+                long lossCount = 0;
+                for (int block = 0; block < numOfBlocks; block++) {
+                    //    Read the block
+                    double[] x;
+                    double[] y;
+                    int blockLength;
+                    if (arrays != null) {
+                        x = arrays.getX();
+                        y = arrays.getY();
+                        blockLength = x.length;
+                    } else {
+                        long from = (long) ws.blockOrder[block] * blockSize;
+                        blockLength = (int) Math.min(blockSize, numOfSample - from);
+                        data.read(from, blockLength, ws.xBlock, ws.yBlock);
+                        x = ws.xBlock;
+                        y = ws.yBlock;
+                    }
+                    int numOfBatches = (blockLength + batchSize - 1) / batchSize;
+
+                    //    Shuffle
+                    if (this.samplingMethod == SAMPLING_SHUFFLE) {
+                        int[] sampleIndex = ws.sampleIndex;
+                        for (int si = 0; si < blockLength; si++) {
+                            sampleIndex[si] = si;
+                        }
+                        for (int si = blockLength - 1; si > 0; si--) {
+                            int swap = ws.random.nextInt(si + 1);
+                            int temp = sampleIndex[si];
+                            sampleIndex[si] = sampleIndex[swap];
+                            sampleIndex[swap] = temp;
+                        }
+                    }
 
-                // Regularization
-                if (this.regularization != null)
-                    derivativeTheta[pi] += this.regularization.derivativeLoss(theta);
-            }
+                    //    Step on each batch
+                    for (int bi = 0; bi < numOfBatches; bi++) {
+                        // The last batch of a shuffled block may be smaller
+                        int offset = bi * batchSize;
+                        int length = this.samplingMethod == SAMPLING_SHUFFLE ? Math.min(batchSize, blockLength - offset) : batchSize;
 
-            // Calculate Gradient descient
-            double[] newTheta = this.gradientDescentMethod.calculateTheta(currentLearningRate, theta, derivativeTheta);
+                        for (int bsi = 0; bsi < length; bsi++) {
+                            int si = this.samplingMethod == SAMPLING_SHUFFLE ? ws.sampleIndex[offset + bsi] : ws.random.nextInt(blockLength);
+                            ws.xBatch[bsi] = x[si];
+                            ws.yBatch[bsi] = y[si];
+                        }
 
-            // Fix parameter range
-            if (this.parameterRange != null) {
-                for (int pi = 0; pi < newTheta.length; pi++) {
-                    if (!Double.isNaN(this.parameterRange[pi][0]) && newTheta[pi] < this.parameterRange[pi][0]) {
-                        newTheta[pi] = this.parameterRange[pi][0];
-                    } else if (!Double.isNaN(this.parameterRange[pi][1]) && newTheta[pi] > this.parameterRange[pi][1]) {
-                        newTheta[pi] = this.parameterRange[pi][1];
+                        lossSum += gradientStep(ws, currentLearningRate, ws.xBatch, ws.yBatch, length, this.lossFromGradientPass) * length;
+                        lossCount += length;
                     }
                 }
+                gradientPassLoss = lossSum / lossCount;
             }
 
             // Calculate Loss
-            this.objectiveFunction.setParameter(newTheta);
-            CumulativeAverage lossAverage = new CumulativeAverage();
-            double[] predictY = this.objectiveFunction.function(x);
-            for (int si = 0; si < numOfSample; si++) {
-                lossAverage.add(this.lossFunction.loss(y[si], predictY[si]));
+            double loss = Double.NaN;
+            int lossEpochs = 1;
+            if (this.lossFromGradientPass) {
+                loss = gradientPassLoss;
+            } else if ((iter + 1) % this.lossEvaluationInterval == 0) {
+                this.batchObjectiveFunction.setParameter(ws.theta);
+                ws.accumulator.clear();
+                accumulate(ws, data, false, true);
+                loss = ws.accumulator.getMeanLoss();
+                lossEpochs = this.lossEvaluationInterval;
             }
-            double loss = lossAverage.getMean();
-            if (verbose)
-                System.out.print(" loss = " + loss);
+            epochLoss = loss;
 
             // Stop
+            if (!Double.isNaN(loss)) {
+                //    Get loss threshold
+                double lossThreshold = this.stopLossThreshold;
+                if (this.stopLossType == STOP_RELATIVE_LOSS) {
+                    lossThreshold = loss * this.stopLossThreshold;
+                }
 
-            //    Get loss threshold
-            double lossThreshold = this.stopLossThreshold;
-            if (this.stopLossType == STOP_RELATIVE_LOSS) {
-                lossThreshold = loss * this.stopLossThreshold;
+                //    Check the average improvement per epoch
+                double lossDiff = (previousLoss - loss) / lossEpochs;
+                if (lossDiff > 0 && lossDiff < lossThreshold)
+                    stopIteration = true;
+
+                //    Update
+                previousLoss = loss;
             }
 
-            //    Check
-            double lossDiff = previousLoss - loss;
-            if (lossDiff > 0 && lossDiff < lossThreshold)
-                stopIteration = true;
+            // Validation
+            double validationLoss = Double.NaN;
+            if (validation && (iter + 1) % this.validationInterval == 0) {
+                this.batchObjectiveFunction.setParameter(ws.theta);
+                ws.accumulator.clear();
+                accumulate(ws, xValidation, yValidation, xValidation.length, false, true);
+                validationLoss = ws.accumulator.getMeanLoss();
+
+                //    Keep the best theta. Only copy on improvement.
+                if (validationLoss < ws.bestValidationLoss) {
+                    ws.bestValidationLoss = validationLoss;
+                    ws.bestEpoch = iter;
+                    ws.numOfBadValidations = 0;
+                    System.arraycopy(ws.theta, 0, ws.bestTheta, 0, numOfParameters);
+                } else {
+                    ws.numOfBadValidations++;
+                    if (this.validationPatience > 0 && ws.numOfBadValidations >= this.validationPatience)
+                        stopIteration = true;
+                }
+            }
 
-            //    Update
-            previousLoss = loss;
+            //    Listener
+            if (listener != null) {
+                if (!Double.isNaN(validationLoss))
+                    listener.onValidation(iter, validationLoss);
 
-            // Update theta
-            if (verbose)
-                System.out.println(" theta:" + JGeneralUtils.toString(theta) + " => " + JGeneralUtils.toString(newTheta));
-            theta = newTheta;
+                double gradientNorm = 0;
+                for (int pi = 0; pi < numOfParameters; pi++) {
+                    gradientNorm += ws.derivativeTheta[pi] * ws.derivativeTheta[pi];
+                }
+                if (!listener.onEpoch(iter, currentLearningRate, loss, Math.sqrt(gradientNorm), System.nanoTime() - startNanos))
+                    stopIteration = true;
+            }
+
+            //    Checkpoint
+            if (!stopIteration && this.checkpointListener != null && iter + 1 < this.maxEpochs) {
+                boolean interval = this.checkpointInterval > 0 && (iter + 1) % this.checkpointInterval == 0;
+                if (interval || this.checkpointRequested) {
+                    this.checkpointRequested = false;
+                    this.checkpointListener.onCheckpoint(iter + 1, checkpoint(ws, numOfInputSample, iter + 1, currentLearningRate, previousLoss, epochSeed, splitSeed));
+                }
+            }
 
             // Update Iteration
             iter++;
         }
 
+        // Copy out of the workspace so that the result is not overwritten by the next solve
+        double[] theta = ws.theta.clone();
+        this.bestEpoch = validation ? ws.bestEpoch : -1;
+        this.bestValidationLoss = validation && ws.bestEpoch >= 0 ? ws.bestValidationLoss : Double.NaN;
+        if (validation && this.restoreBestParameters && ws.bestEpoch >= 0)
+            System.arraycopy(ws.bestTheta, 0, theta, 0, numOfParameters);
+        this.batchObjectiveFunction.setParameter(theta);
+
         return theta;
     }
 
+    /**
+     * Get the workspace for the problem size
+     *
+     * @param data            Training data
+     * @param numOfParameters Number of parameters
+     * @return Return the workspace
+     */
+    private Workspace workspace(DataSource data, int numOfParameters) {
+        boolean streamed = !(data instanceof ArrayDataSource);
+        if (streamed && this.validationFraction > 0)
+            throw new UnsupportedOperationException("The validation fraction is only supported on arrays. Set the validation data instead.");
+
+        if (this.workspace == null)
+            this.workspace = new Workspace();
+
+        // Training samples after the validation split
+        long numOfSample = data.size() - numOfHoldout(data.size());
+
+        int blockSize = blockSize(numOfSample, streamed);
+        boolean miniBatch = this.batchSize > 0 && numOfSample > 0;
+        this.workspace.ensure(blockSize, numOfParameters, miniBatch ? Math.min(this.batchSize, blockSize) : 0, this.samplingMethod, streamed);
+        return this.workspace;
+    }
+
+    /**
+     * Get the number of samples per block
+     *
+     * @param numOfSample Number of training samples
+     * @param streamed    Is the data read block by block? Otherwise all samples are in a single block.
+     * @return Return the number of samples per block
+     */
+    private int blockSize(long numOfSample, boolean streamed) {
+        if (!streamed)
+            return (int) numOfSample;
+
+        // Whole batches per block
+        int blockSize = this.blockSize;
+        if (this.batchSize > 0)
+            blockSize = Math.max(this.batchSize, blockSize / this.batchSize * this.batchSize);
+
+        return (int) Math.min(blockSize, numOfSample);
+    }
+
+    /**
+     * Get the number of samples held out for validation
+     *
+     * @param numOfSample Number of samples
+     * @return Return the number of validation samples. 0 if the validation fraction is disabled.
+     */
+    private int numOfHoldout(long numOfSample) {
+        if (this.validationFraction == 0)
+            return 0;
+
+        int numOfValidation = (int) Math.round(numOfSample * this.validationFraction);
+        if (numOfValidation <= 0 || numOfValidation >= numOfSample)
+            throw new IllegalArgumentException("The validation fraction (" + this.validationFraction + ") leaves no training or validation sample in " + numOfSample + " samples.");
+
+        return numOfValidation;
+    }
+
+    /**
+     * Write a checkpoint at the end of an epoch
+     *
+     * @param ws                  Workspace
+     * @param numOfSample         Number of samples
+     * @param nextEpoch           Next epoch to run
+     * @param currentLearningRate Learning rate of the finished epoch
+     * @param previousLoss        Loss of the finished epoch
+     * @param epochSeed           Seed of the mini-batch sampling
+     * @param splitSeed           Seed of the validation split
+     * @return Return the checkpoint
+     */
+    private byte[] checkpoint(Workspace ws, long numOfSample, int nextEpoch, double currentLearningRate, double previousLoss, long epochSeed, long splitSeed) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + 8 * ws.theta.length * 4);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            // Header
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeLong(numOfSample);
+            out.writeInt(ws.theta.length);
+            out.writeInt(this.batchSize);
+            out.writeInt(this.samplingMethod);
+
+            // Solver state
+            out.writeInt(nextEpoch);
+            out.writeDouble(currentLearningRate);
+            out.writeDouble(previousLoss);
+            out.writeLong(epochSeed);
+            out.writeLong(splitSeed);
+            for (int pi = 0; pi < ws.theta.length; pi++) {
+                out.writeDouble(ws.theta[pi]);
+            }
+
+            // Validation state
+            out.writeDouble(ws.bestValidationLoss);
+            out.writeInt(ws.bestEpoch);
+            out.writeInt(ws.numOfBadValidations);
+            if (ws.bestEpoch >= 0) {
+                for (int pi = 0; pi < ws.theta.length; pi++) {
+                    out.writeDouble(ws.bestTheta[pi]);
+                }
+            }
+
+            // Optimizer state
+            out.writeUTF(this.gradientDescentMethod.getClass().getName());
+            this.gradientDescentMethod.writeState(out);
+            out.writeBoolean(this.learningRateDecayMethod != null);
+            if (this.learningRateDecayMethod != null) {
+                out.writeUTF(this.learningRateDecayMethod.getClass().getName());
+                this.learningRateDecayMethod.writeState(out);
+            }
+
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Calculate the mean loss of the objective function on the given parameters.
+     *
+     * @param x     Data x
+     * @param y     Data y
+     * @param theta Parameters
+     * @return Return the mean loss. Non-finite losses are ignored.
+     */
+    public double calculateLoss(double[] x, double[] y, double[] theta) {
+        // Throw Exception
+        if (x.length != y.length)
+            throw new IllegalArgumentException("The length of x (" + x.length + ") must be equal to the length of y (" + y.length + ").");
+
+        if (this.workspace == null)
+            this.workspace = new Workspace();
+        Workspace ws = this.workspace;
+        ws.ensure(x.length, theta.length, 0, this.samplingMethod, false);
+
+        this.batchObjectiveFunction.setParameter(theta);
+        ws.accumulator.clear();
+        accumulate(ws, x, y, x.length, false, true);
+
+        return ws.accumulator.getMeanLoss();
+    }
+
+    /**
+     * Run one gradient descent step on the given samples. Update <code>ws.theta</code>.
+     *
+     * @param ws           Workspace
+     * @param learningRate Learning rate
+     * @param x            Training data x
+     * @param y            Training data y
+     * @param numOfSample  Number of samples in x and y to be used
+     * @param withLoss     Evaluate the loss before the update?
+     * @return Return the mean loss before the update. NaN if withLoss is false.
+     */
+    private double gradientStep(Workspace ws, double learningRate, double[] x, double[] y, int numOfSample, boolean withLoss) {
+        // Set current theta to objective function
+        this.batchObjectiveFunction.setParameter(ws.theta);
+
+        // Calculate average derivative theta
+        ws.accumulator.clear();
+        accumulate(ws, x, y, numOfSample, true, withLoss);
+
+        return step(ws, learningRate, withLoss);
+    }
+
+    /**
+     * Update <code>ws.theta</code> by the gradient in <code>ws.accumulator</code>
+     *
+     * @param ws           Workspace
+     * @param learningRate Learning rate
+     * @param withLoss     Is the loss accumulated?
+     * @return Return the mean loss before the update. NaN if withLoss is false.
+     */
+    private double step(Workspace ws, double learningRate, boolean withLoss) {
+        int numOfParameters = ws.theta.length;
+        double[] theta = ws.theta;
+
+        GradientAccumulator accumulator = ws.accumulator;
+        double loss = withLoss ? accumulator.getMeanLoss() : Double.NaN;
+
+        double[] derivativeTheta = ws.derivativeTheta;
+        accumulator.getMeanGradient(derivativeTheta);
+
+        // Regularization, once per step
+        if (this.regularization != null) {
+            double[] regularizationDerivative = ws.regularizationDerivative;
+            this.regularization.derivativeLoss(theta, regularizationDerivative);
+            for (int pi = 0; pi < numOfParameters; pi++) {
+                derivativeTheta[pi] += regularizationDerivative[pi];
+            }
+        }
+
+        // Calculate Gradient descient in place and fix parameter range
+        if (ws.bounded)
+            this.gradientDescentMethod.updateTheta(learningRate, theta, derivativeTheta, ws.lowerBound, ws.upperBound);
+        else
+            this.gradientDescentMethod.updateTheta(learningRate, theta, derivativeTheta);
+
+        return loss;
+    }
+
+    /**
+     * Evaluate the objective function block by block and add the results to <code>ws.accumulator</code>.
+     *
+     * @param ws           Workspace
+     * @param x            Training data x
+     * @param y            Training data y
+     * @param numOfSample  Number of samples in x and y to be used
+     * @param withGradient Accumulate the gradient? Otherwise only the loss is accumulated.
+     * @param withLoss     Accumulate the loss together with the gradient? Ignored if withGradient is false.
+     */
+    private void accumulate(Workspace ws, double[] x, double[] y, int numOfSample, boolean withGradient, boolean withLoss) {
+        ForkJoinPool pool = null;
+        if (this.parallel && numOfSample >= this.parallelThreshold)
+            pool = this.forkJoinPool != null ? this.forkJoinPool : ForkJoinPool.commonPool();
+
+        ws.evaluator.accumulate(this.batchObjectiveFunction, this.lossFunction, ws.accumulator, x, y, numOfSample, withGradient, withLoss, pool);
+    }
 
+    /**
+     * Evaluate the objective function on all samples of a data source and add the results to
+     * <code>ws.accumulator</code>. Streamed data are read block by block into the workspace.
+     *
+     * @param ws           Workspace
+     * @param data         Training data
+     * @param withGradient Accumulate the gradient? Otherwise only the loss is accumulated.
+     * @param withLoss     Accumulate the loss together with the gradient? Ignored if withGradient is false.
+     */
+    private void accumulate(Workspace ws, DataSource data, boolean withGradient, boolean withLoss) {
+        if (data instanceof ArrayDataSource) {
+            ArrayDataSource arrays = (ArrayDataSource) data;
+            accumulate(ws, arrays.getX(), arrays.getY(), arrays.getX().length, withGradient, withLoss);
+            return;
+        }
+
+        long numOfSample = data.size();
+        int blockSize = ws.xBlock.length;
+        for (long from = 0; from < numOfSample; from += blockSize) {
+            int length = (int) Math.min(blockSize, numOfSample - from);
+            data.read(from, length, ws.xBlock, ws.yBlock);
+            accumulate(ws, ws.xBlock, ws.yBlock, length, withGradient, withLoss);
+        }
+    }
+
+    /**
+     * Scratch buffers of the solver. They are allocated once and reused across epochs and across solve() calls.
+     */
+    private static final class Workspace {
+        private double[] theta;
+        private double[] derivativeTheta;
+        private double[] regularizationDerivative;
+
+        // Parameter range
+        private boolean bounded;
+        private double[] lowerBound;
+        private double[] upperBound;
+        private final GradientEvaluator evaluator = new GradientEvaluator();
+        private final GradientAccumulator accumulator = new GradientAccumulator(0);
+
+        // Mini-batch
+        private final Random random = new Random();
+        private int[] sampleIndex;
+        private double[] xBatch;
+        private double[] yBatch;
+
+        // Streamed data
+        private int[] blockOrder;
+        private double[] xBlock;
+        private double[] yBlock;
+
+        // Validation
+        private double[] bestTheta;
+        private double bestValidationLoss;
+        private int bestEpoch;
+        private int numOfBadValidations;
+        private int[] splitIndex;
+        private double[] xTrain;
+        private double[] yTrain;
+        private double[] xValidation;
+        private double[] yValidation;
+
+        /**
+         * Make sure the buffers fit the problem size. Buffers are only reallocated if the size is changed.
+         *
+         * @param blockSize       Number of samples per block
+         * @param numOfParameters Number of parameters
+         * @param batchSize       Mini-batch size. 0 for full batch.
+         * @param samplingMethod  Mini-batch sampling method
+         * @param streamed        Is the data read block by block into the workspace?
+         */
+        private void ensure(int blockSize, int numOfParameters, int batchSize, int samplingMethod, boolean streamed) {
+            // Parameters
+            if (this.theta == null || this.theta.length != numOfParameters) {
+                this.theta = new double[numOfParameters];
+                this.derivativeTheta = new double[numOfParameters];
+                this.regularizationDerivative = new double[numOfParameters];
+                this.lowerBound = new double[numOfParameters];
+                this.upperBound = new double[numOfParameters];
+                this.bestTheta = new double[numOfParameters];
+                this.evaluator.ensure(numOfParameters);
+                this.accumulator.reset(numOfParameters);
+            }
+
+            // Mini-batch
+            if (batchSize > 0) {
+                if (this.xBatch == null || this.xBatch.length != batchSize) {
+                    this.xBatch = new double[batchSize];
+                    this.yBatch = new double[batchSize];
+                }
+
+                if (samplingMethod == SAMPLING_SHUFFLE && (this.sampleIndex == null || this.sampleIndex.length != blockSize))
+                    this.sampleIndex = new int[blockSize];
+            }
+
+            // Streamed data
+            if (streamed && (this.xBlock == null || this.xBlock.length != blockSize)) {
+                this.xBlock = new double[blockSize];
+                this.yBlock = new double[blockSize];
+            }
+        }
+
+        /**
+         * Flatten the parameter range into the bound buffers
+         *
+         * @param parameterRange Parameters range in double[para][2]. Null if unbounded.
+         */
+        private void setBounds(double[][] parameterRange) {
+            this.bounded = parameterRange != null;
+            if (!this.bounded)
+                return;
+
+            for (int pi = 0; pi < this.theta.length; pi++) {
+                this.lowerBound[pi] = parameterRange[pi][0];
+                this.upperBound[pi] = parameterRange[pi][1];
+            }
+        }
+
+        /**
+         * Clear the best validation result
+         */
+        private void resetValidation() {
+            this.bestValidationLoss = Double.POSITIVE_INFINITY;
+            this.bestEpoch = -1;
+            this.numOfBadValidations = 0;
+        }
+
+        /**
+         * Split the samples into the training and the validation buffers. The validation samples are picked by a
+         * partial shuffle. Both parts keep the original order of the samples.
+         *
+         * @param x               Data x
+         * @param y               Data y
+         * @param numOfValidation Number of validation samples
+         * @param splitSeed       Seed of the split
+         */
+        private void split(double[] x, double[] y, int numOfValidation, long splitSeed) {
+            int numOfSample = x.length;
+            int numOfTraining = numOfSample - numOfValidation;
+            if (this.splitIndex == null || this.splitIndex.length != numOfSample)
+                this.splitIndex = new int[numOfSample];
+            if (this.xTrain == null || this.xTrain.length != numOfTraining) {
+                this.xTrain = new double[numOfTraining];
+                this.yTrain = new double[numOfTraining];
+            }
+            if (this.xValidation == null || this.xValidation.length != numOfValidation) {
+                this.xValidation = new double[numOfValidation];
+                this.yValidation = new double[numOfValidation];
+            }
+
+            // Pick the validation samples
+            int[] index = this.splitIndex;
+            for (int si = 0; si < numOfSample; si++) {
+                index[si] = si;
+            }
+            this.random.setSeed(splitSeed);
+            for (int si = 0; si < numOfValidation; si++) {
+                int swap = si + this.random.nextInt(numOfSample - si);
+                int temp = index[si];
+                index[si] = index[swap];
+                index[swap] = temp;
+            }
+            Arrays.sort(index, 0, numOfValidation);
+
+            // Copy
+            int vi = 0;
+            int ti = 0;
+            for (int si = 0; si < numOfSample; si++) {
+                if (vi < numOfValidation && index[vi] == si) {
+                    this.xValidation[vi] = x[si];
+                    this.yValidation[vi] = y[si];
+                    vi++;
+                } else {
+                    this.xTrain[ti] = x[si];
+                    this.yTrain[ti] = y[si];
+                    ti++;
+                }
+            }
+        }
+    }
 }
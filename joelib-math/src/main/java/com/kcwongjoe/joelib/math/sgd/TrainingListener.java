@@ -0,0 +1,40 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+/**
+ * Listener of the training progress of {@link StochasticGradientDescent}.
+ * <p>
+ * It is called on the solving thread once per epoch, so it should return quickly and should not allocate.
+ **/
+public interface TrainingListener {
+
+    /**
+     * Called before the first epoch of a solve.
+     *
+     * @param numOfParameters Number of parameters
+     */
+    default void onStart(int numOfParameters) {
+    }
+
+    /**
+     * Called after every validation evaluation, before {@link #onEpoch(int, double, double, double, long)} of the
+     * same epoch.
+     *
+     * @param epoch          Epoch index, start from 0
+     * @param validationLoss Mean loss on the validation data after the epoch
+     */
+    default void onValidation(int epoch, double validationLoss) {
+    }
+
+    /**
+     * Called after every epoch.
+     *
+     * @param epoch        Epoch index, start from 0
+     * @param learningRate Learning rate of the epoch
+     * @param loss         Mean loss on all samples after the epoch. NaN if the loss is not evaluated on this epoch. It is
+     *                     the loss before the epoch if the loss is taken from the gradient pass.
+     * @param gradientNorm L2 norm of the gradient of the last step in the epoch
+     * @param elapsedNanos Nanoseconds since the start of the solve
+     * @return Return false to stop the iteration
+     */
+    boolean onEpoch(int epoch, double learningRate, double loss, double gradientNorm, long elapsedNanos);
+}
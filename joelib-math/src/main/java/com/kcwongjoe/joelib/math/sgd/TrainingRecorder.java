@@ -0,0 +1,138 @@
+package com.kcwongjoe.joelib.math.sgd;
+
+import java.util.Arrays;
+
+/**
+ * {@link TrainingListener} recording the progress of every epoch in primitive arrays.
+ * <p>
+ * The history is cleared on every solve. Arrays only grow when the capacity is exceeded, so pass the number of
+ * epochs to the constructor to avoid allocation during solving.
+ **/
+public class TrainingRecorder implements TrainingListener {
+
+    private double[] learningRates;
+    private double[] losses;
+    private double[] gradientNorms;
+    private long[] elapsedNanos;
+    private int size = 0;
+
+    /**
+     * Constructor
+     */
+    public TrainingRecorder() {
+        this(64);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity Initial capacity in number of epochs
+     */
+    public TrainingRecorder(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity (" + capacity + ") must be > 0.");
+
+        this.learningRates = new double[capacity];
+        this.losses = new double[capacity];
+        this.gradientNorms = new double[capacity];
+        this.elapsedNanos = new long[capacity];
+    }
+
+    @Override
+    public void onStart(int numOfParameters) {
+        clear();
+    }
+
+    @Override
+    public boolean onEpoch(int epoch, double learningRate, double loss, double gradientNorm, long elapsedNanos) {
+        if (this.size == this.losses.length) {
+            int capacity = this.size * 2;
+            this.learningRates = Arrays.copyOf(this.learningRates, capacity);
+            this.losses = Arrays.copyOf(this.losses, capacity);
+            this.gradientNorms = Arrays.copyOf(this.gradientNorms, capacity);
+            this.elapsedNanos = Arrays.copyOf(this.elapsedNanos, capacity);
+        }
+
+        this.learningRates[this.size] = learningRate;
+        this.losses[this.size] = loss;
+        this.gradientNorms[this.size] = gradientNorm;
+        this.elapsedNanos[this.size] = elapsedNanos;
+        this.size++;
+
+        return true;
+    }
+
+    /**
+     * Clear the history
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Get the number of recorded epochs
+     *
+     * @return Return the number of recorded epochs
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the loss of an epoch
+     *
+     * @param epoch Epoch index
+     * @return Return the mean loss after the epoch
+     */
+    public double getLoss(int epoch) {
+        checkIndex(epoch);
+        return this.losses[epoch];
+    }
+
+    /**
+     * Get the learning rate of an epoch
+     *
+     * @param epoch Epoch index
+     * @return Return the learning rate
+     */
+    public double getLearningRate(int epoch) {
+        checkIndex(epoch);
+        return this.learningRates[epoch];
+    }
+
+    /**
+     * Get the gradient norm of an epoch
+     *
+     * @param epoch Epoch index
+     * @return Return the L2 norm of the gradient of the last step in the epoch
+     */
+    public double getGradientNorm(int epoch) {
+        checkIndex(epoch);
+        return this.gradientNorms[epoch];
+    }
+
+    /**
+     * Get the elapsed time of an epoch
+     *
+     * @param epoch Epoch index
+     * @return Return the nanoseconds since the start of the solve
+     */
+    public long getElapsedNanos(int epoch) {
+        checkIndex(epoch);
+        return this.elapsedNanos[epoch];
+    }
+
+    /**
+     * Get the loss history
+     *
+     * @return Return a copy of the losses in double[epoch]
+     */
+    public double[] getLosses() {
+        return Arrays.copyOf(this.losses, this.size);
+    }
+
+    private void checkIndex(int epoch) {
+        if (epoch < 0 || epoch >= this.size)
+            throw new IndexOutOfBoundsException("epoch (" + epoch + ") must be in [0, " + this.size + ").");
+    }
+}
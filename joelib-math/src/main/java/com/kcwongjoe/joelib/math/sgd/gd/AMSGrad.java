@@ -0,0 +1,129 @@
+package com.kcwongjoe.joelib.math.sgd.gd;
+
+/**
+ * AMSGrad
+ * <p>
+ * Adam with the maximum of the past second moments, so the effective step size never increases. It fixes the
+ * non-convergence of Adam on noisy gradients.
+ * <p>
+ * reference: https://openreview.net/forum?id=ryQu7f-RZ
+ **/
+public class AMSGrad extends AdaptiveGradientDescent {
+
+    private double beta1;
+    private double beta2;
+
+    // region Constructor
+
+    /**
+     * Constructor
+     * Set beta1 = 0.9, beta2 = 0.999, eps = 1e-8
+     */
+    public AMSGrad() {
+        this(0.9, 0.999, 1e-8);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param beta1 Beta1
+     * @param beta2 Beta2
+     * @param eps   eps
+     */
+    public AMSGrad(double beta1, double beta2, double eps) {
+        super(3, eps);
+        setBeta1(beta1);
+        setBeta2(beta2);
+    }
+
+    // endregion
+
+    // region getter and setter
+
+    /**
+     * Get beta1
+     *
+     * @return Return beta1
+     */
+    public double getBeta1() {
+        return beta1;
+    }
+
+    /**
+     * Set beta1
+     *
+     * @param beta1 beta1, Must be between 0 and 1
+     */
+    public void setBeta1(double beta1) {
+        if (beta1 < 0 || beta1 > 1)
+            throw new IllegalArgumentException("beta1 (" + beta1 + ") must be between 0 and 1.");
+
+        this.beta1 = beta1;
+    }
+
+    /**
+     * Get beta2
+     *
+     * @return Return beta2
+     */
+    public double getBeta2() {
+        return beta2;
+    }
+
+    /**
+     * Set beta2
+     *
+     * @param beta2 beta2, Must be between 0 and 1
+     */
+    public void setBeta2(double beta2) {
+        if (beta2 < 0 || beta2 > 1)
+            throw new IllegalArgumentException("beta2 (" + beta2 + ") must be between 0 and 1.");
+
+        this.beta2 = beta2;
+    }
+
+    // endregion
+
+    @Override
+    public String toString() {
+        return "AMSGrad: beta1 = " + this.beta1 + ", beta2 = " + this.beta2 + ", eps = " + getEps();
+    }
+
+    @Override
+    public AMSGrad copy() {
+        return new AMSGrad(this.beta1, this.beta2, getEps());
+    }
+
+    @Override
+    protected void update(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        // Bias correction once per step
+        double correction1 = 1.0 - Math.pow(this.beta1, this.iteration);
+        double correction2 = 1.0 - Math.pow(this.beta2, this.iteration);
+        double eps = getEps();
+
+        double[] mts = this.moments[0];
+        double[] vts = this.moments[1];
+        double[] maxVts = this.moments[2];
+        for (int i = 0; i < theta.length; i++) {
+            double newTheta = next(mts, vts, maxVts, i, learningRate, theta[i], derivativeTheta[i], correction1, correction2, eps);
+            theta[i] = lowerBound == null ? newTheta : GradientDescentMethod.project(newTheta, lowerBound[i], upperBound[i]);
+        }
+    }
+
+    @Override
+    protected double step(int index, double learningRate, double theta, double derivativeTheta, long iteration) {
+        double correction1 = 1.0 - Math.pow(this.beta1, iteration);
+        double correction2 = 1.0 - Math.pow(this.beta2, iteration);
+        return next(this.moments[0], this.moments[1], this.moments[2], index, learningRate, theta, derivativeTheta, correction1, correction2, getEps());
+    }
+
+    private double next(double[] mts, double[] vts, double[] maxVts, int i, double learningRate, double theta, double derivativeTheta, double correction1, double correction2, double eps) {
+        double mt = this.beta1 * mts[i] + (1.0 - this.beta1) * derivativeTheta;
+        double vt = this.beta2 * vts[i] + (1.0 - this.beta2) * (derivativeTheta * derivativeTheta);
+        double maxVt = Math.max(maxVts[i], vt);
+        mts[i] = mt;
+        vts[i] = vt;
+        maxVts[i] = maxVt;
+        return theta - learningRate * (mt / correction1) / (Math.sqrt(maxVt / correction2) + eps);
+    }
+}
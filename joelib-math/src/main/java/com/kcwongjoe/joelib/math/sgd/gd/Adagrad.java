@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.gd;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Adagrad
  * <p>
@@ -60,6 +64,11 @@ public class Adagrad implements GradientDescentMethod {
         return "Adagrad: eps = " + this.eps;
     }
 
+    @Override
+    public Adagrad copy() {
+        return new Adagrad(this.eps);
+    }
+
     @Override
     public void Reset(int length) {
         this.currentGt = new double[length];
@@ -68,6 +77,30 @@ public class Adagrad implements GradientDescentMethod {
         }
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        if (this.currentGt == null)
+            throw new IllegalStateException("Please reset().");
+
+        out.writeInt(this.currentGt.length);
+        for (int i = 0; i < this.currentGt.length; i++) {
+            out.writeDouble(this.currentGt[i]);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        Reset(in.readInt());
+        for (int i = 0; i < this.currentGt.length; i++) {
+            this.currentGt[i] = in.readDouble();
+        }
+    }
+
     // region calculateTheta
 
     @Override
@@ -94,12 +127,38 @@ public class Adagrad implements GradientDescentMethod {
     @Override
     public double[] calculateTheta(double learningRate, double[] theta, double[] derivativeTheta){
 
-        double[] newTheta = new double[theta.length];
+        double[] newTheta = theta.clone();
+        updateTheta(learningRate, newTheta, derivativeTheta);
+
+        return newTheta;
+    }
+
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
+        if (currentGt == null)
+            throw new ArithmeticException("Please reset().");
+
+        double[] gts = this.currentGt;
         for (int i = 0; i < theta.length; i++) {
-            newTheta[i] = calculateTheta(i, learningRate, theta[i], derivativeTheta[i]);
+            double d = derivativeTheta[i];
+            double gt = gts[i] + (d * d);
+            gts[i] = gt;
+            theta[i] = theta[i] - learningRate * d / (Math.sqrt(gt) + this.eps);
         }
+    }
 
-        return newTheta;
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        if (currentGt == null)
+            throw new ArithmeticException("Please reset().");
+
+        double[] gts = this.currentGt;
+        for (int i = 0; i < theta.length; i++) {
+            double d = derivativeTheta[i];
+            double gt = gts[i] + (d * d);
+            gts[i] = gt;
+            theta[i] = GradientDescentMethod.project(theta[i] - learningRate * d / (Math.sqrt(gt) + this.eps), lowerBound[i], upperBound[i]);
+        }
     }
 
 
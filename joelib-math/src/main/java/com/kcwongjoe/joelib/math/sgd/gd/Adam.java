@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.gd;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Adam
  * <p>
@@ -114,6 +118,11 @@ public class Adam implements GradientDescentMethod {
         return "Adam: beta1 = " + this.beta1 + ", beta2 = " + this.beta2 + ", eps = " + this.eps;
     }
 
+    @Override
+    public Adam copy() {
+        return new Adam(this.beta1, this.beta2, this.eps);
+    }
+
 
     @Override
     public void Reset(int length) {
@@ -127,6 +136,34 @@ public class Adam implements GradientDescentMethod {
         }
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        if (this.currentmt == null)
+            throw new IllegalStateException("Please reset().");
+
+        out.writeInt(this.currentmt.length);
+        for (int i = 0; i < this.currentmt.length; i++) {
+            out.writeDouble(this.currentmt[i]);
+            out.writeDouble(this.currentvt[i]);
+            out.writeDouble(this.currentIteration[i]);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        Reset(in.readInt());
+        for (int i = 0; i < this.currentmt.length; i++) {
+            this.currentmt[i] = in.readDouble();
+            this.currentvt[i] = in.readDouble();
+            this.currentIteration[i] = in.readDouble();
+        }
+    }
+
     // region calculateTheta
 
     @Override
@@ -165,13 +202,86 @@ public class Adam implements GradientDescentMethod {
     @Override
     public double[] calculateTheta(double learningRate, double[] theta, double[] derivativeTheta){
 
-        double[] newTheta = new double[theta.length];
+        double[] newTheta = theta.clone();
+        updateTheta(learningRate, newTheta, derivativeTheta);
+
+        return newTheta;
+    }
+
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
+        if (currentmt == null || currentvt == null)
+            throw new ArithmeticException("Please reset().");
+
+        // Bias correction once per step
+        double iteration = uniformIteration();
+        if (iteration == 0) {
+            GradientDescentMethod.super.updateTheta(learningRate, theta, derivativeTheta);
+            return;
+        }
+        double correction1 = 1.0 - Math.pow(this.beta1, iteration);
+        double correction2 = 1.0 - Math.pow(this.beta2, iteration);
+
+        double[] mts = this.currentmt;
+        double[] vts = this.currentvt;
         for (int i = 0; i < theta.length; i++) {
-            newTheta[i] = calculateTheta(i, learningRate, theta[i], derivativeTheta[i]);
+            double d = derivativeTheta[i];
+            double mt = this.beta1 * mts[i] + (1.0 - this.beta1) * d;
+            double vt = this.beta2 * vts[i] + (1.0 - this.beta2) * (d * d);
+            mts[i] = mt;
+            vts[i] = vt;
+            theta[i] = theta[i] - learningRate * (mt / correction1) / (Math.sqrt(vt / correction2) + this.eps);
         }
 
-        return newTheta;
+        double nextIteration = iteration + 1;
+        for (int i = 0; i < theta.length; i++) {
+            this.currentIteration[i] = nextIteration;
+        }
     }
 
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        if (currentmt == null || currentvt == null)
+            throw new ArithmeticException("Please reset().");
+
+        // Bias correction once per step
+        double iteration = uniformIteration();
+        if (iteration == 0) {
+            GradientDescentMethod.super.updateTheta(learningRate, theta, derivativeTheta, lowerBound, upperBound);
+            return;
+        }
+        double correction1 = 1.0 - Math.pow(this.beta1, iteration);
+        double correction2 = 1.0 - Math.pow(this.beta2, iteration);
+
+        double[] mts = this.currentmt;
+        double[] vts = this.currentvt;
+        for (int i = 0; i < theta.length; i++) {
+            double d = derivativeTheta[i];
+            double mt = this.beta1 * mts[i] + (1.0 - this.beta1) * d;
+            double vt = this.beta2 * vts[i] + (1.0 - this.beta2) * (d * d);
+            mts[i] = mt;
+            vts[i] = vt;
+            theta[i] = GradientDescentMethod.project(theta[i] - learningRate * (mt / correction1) / (Math.sqrt(vt / correction2) + this.eps), lowerBound[i], upperBound[i]);
+        }
+
+        double nextIteration = iteration + 1;
+        for (int i = 0; i < theta.length; i++) {
+            this.currentIteration[i] = nextIteration;
+        }
+    }
 
+    /**
+     * Get the iteration shared by all parameters. Iterations differ only if the scalar version was called on some
+     * indexes.
+     *
+     * @return Return the iteration. 0 if the iterations differ.
+     */
+    private double uniformIteration() {
+        double iteration = this.currentIteration.length > 0 ? Math.max(this.currentIteration[0], 1) : 1;
+        for (int i = 1; i < this.currentIteration.length; i++) {
+            if (Math.max(this.currentIteration[i], 1) != iteration)
+                return 0;
+        }
+        return iteration;
+    }
 }
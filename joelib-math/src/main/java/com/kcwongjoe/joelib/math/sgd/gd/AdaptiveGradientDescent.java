@@ -0,0 +1,199 @@
+package com.kcwongjoe.joelib.math.sgd.gd;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Base of the adaptive gradient descent methods keeping per-parameter moment vectors.
+ * <p>
+ * The state is a fixed number of moment vectors of the parameter length and one step counter shared by all
+ * parameters, so the vector update and the checkpoint are the same for all subclasses. Subclasses implement the
+ * update kernel {@link #update(double, double[], double[], double[], double[])}.
+ * <p>
+ * The scalar {@link #calculateTheta(int, double, double, double, boolean)} must be called on every index in order
+ * for each step. The step counter advances on the last index.
+ **/
+public abstract class AdaptiveGradientDescent implements GradientDescentMethod {
+
+    private final int numOfMoments;
+    private final double[] savedMoments;
+    private double eps;
+
+    /**
+     * Moment vectors in double[moment][parameter]
+     */
+    protected double[][] moments = null;
+
+    /**
+     * Number of finished steps
+     */
+    protected long iteration = 0;
+
+    // region Constructor
+
+    /**
+     * Constructor
+     *
+     * @param numOfMoments Number of moment vectors
+     * @param eps          eps
+     */
+    protected AdaptiveGradientDescent(int numOfMoments, double eps) {
+        this.numOfMoments = numOfMoments;
+        this.savedMoments = new double[numOfMoments];
+        setEps(eps);
+    }
+
+    // endregion
+
+    // region getter and setter
+
+    /**
+     * Get eps
+     *
+     * @return Return eps
+     */
+    public double getEps() {
+        return eps;
+    }
+
+    /**
+     * Set eps
+     *
+     * @param eps eps. Must be &gt; 0
+     */
+    public void setEps(double eps) {
+        if (eps <= 0)
+            throw new IllegalArgumentException("eps (" + eps + ") must be > 0");
+
+        this.eps = eps;
+    }
+
+    // endregion
+
+    @Override
+    public void Reset(int length) {
+        this.moments = new double[this.numOfMoments][length];
+        this.iteration = 0;
+    }
+
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        if (this.moments == null)
+            throw new IllegalStateException("Please reset().");
+
+        int length = this.moments[0].length;
+        out.writeInt(length);
+        out.writeInt(this.numOfMoments);
+        out.writeLong(this.iteration);
+        for (int i = 0; i < length; i++) {
+            for (int mi = 0; mi < this.numOfMoments; mi++) {
+                out.writeDouble(this.moments[mi][i]);
+            }
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int length = in.readInt();
+        int numOfMoments = in.readInt();
+        if (numOfMoments != this.numOfMoments)
+            throw new IOException("Number of moments (" + numOfMoments + ") must be = " + this.numOfMoments);
+
+        Reset(length);
+        this.iteration = in.readLong();
+        for (int i = 0; i < length; i++) {
+            for (int mi = 0; mi < this.numOfMoments; mi++) {
+                this.moments[mi][i] = in.readDouble();
+            }
+        }
+    }
+
+    // region calculateTheta
+
+    @Override
+    public double calculateTheta(int index, double learningRate, double theta, double derivativeTheta) {
+        return calculateTheta(index, learningRate, theta, derivativeTheta, true);
+    }
+
+    @Override
+    public double calculateTheta(int index, double learningRate, double theta, double derivativeTheta, boolean updateInternalCoefficient) {
+        if (this.moments == null)
+            throw new ArithmeticException("Please reset().");
+
+        if (updateInternalCoefficient) {
+            double newTheta = step(index, learningRate, theta, derivativeTheta, this.iteration + 1);
+            if (index == this.moments[0].length - 1)
+                this.iteration++;
+            return newTheta;
+        }
+
+        // Restore the moments
+        for (int mi = 0; mi < this.numOfMoments; mi++) {
+            this.savedMoments[mi] = this.moments[mi][index];
+        }
+        double newTheta = step(index, learningRate, theta, derivativeTheta, this.iteration + 1);
+        for (int mi = 0; mi < this.numOfMoments; mi++) {
+            this.moments[mi][index] = this.savedMoments[mi];
+        }
+
+        return newTheta;
+    }
+
+    @Override
+    public double[] calculateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
+
+        double[] newTheta = theta.clone();
+        updateTheta(learningRate, newTheta, derivativeTheta);
+
+        return newTheta;
+    }
+
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
+        if (this.moments == null)
+            throw new ArithmeticException("Please reset().");
+
+        this.iteration++;
+        update(learningRate, theta, derivativeTheta, null, null);
+    }
+
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        if (this.moments == null)
+            throw new ArithmeticException("Please reset().");
+
+        this.iteration++;
+        update(learningRate, theta, derivativeTheta, lowerBound, upperBound);
+    }
+
+    /**
+     * Update all thetas in place for step <code>this.iteration</code> (start from 1) and update the moments.
+     *
+     * @param learningRate    Learning Rate
+     * @param theta           Theta. It is overwritten by the new theta.
+     * @param derivativeTheta The derivative of Theta
+     * @param lowerBound      Lower bound of each theta. NaN for unbounded. Null if no bound.
+     * @param upperBound      Upper bound of each theta. NaN for unbounded. Null if no bound.
+     */
+    protected abstract void update(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound);
+
+    /**
+     * Update a single theta and its moments.
+     *
+     * @param index           Index of the parameter
+     * @param learningRate    Learning Rate
+     * @param theta           Theta
+     * @param derivativeTheta The derivative of Theta
+     * @param iteration       Step, start from 1
+     * @return Return the new theta
+     */
+    protected abstract double step(int index, double learningRate, double theta, double derivativeTheta, long iteration);
+
+    // endregion
+}
@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.gd;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Interface for Gradient Descent Method
  **/
@@ -12,6 +16,42 @@ public interface GradientDescentMethod {
      */
     void Reset(int length);
 
+    /**
+     * Create a new instance with the same settings. The internal coefficient is not copied.
+     *
+     * @return Return the new instance
+     */
+    GradientDescentMethod copy();
+
+    /**
+     * Whether {@link #writeState(DataOutput)} and {@link #readState(DataInput)} are implemented
+     *
+     * @return Return true if the internal coefficient can be checkpointed.
+     */
+    default boolean supportsCheckpoint() {
+        return false;
+    }
+
+    /**
+     * Write the internal coefficient for checkpoint
+     *
+     * @param out Output
+     * @throws IOException If an I/O error occurs
+     */
+    default void writeState(DataOutput out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support checkpoint.");
+    }
+
+    /**
+     * Restore the internal coefficient written by {@link #writeState(DataOutput)}
+     *
+     * @param in Input
+     * @throws IOException If an I/O error occurs
+     */
+    default void readState(DataInput in) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support checkpoint.");
+    }
+
     /**
      * Calculate Theta
      *
@@ -44,4 +84,50 @@ public interface GradientDescentMethod {
      * @return Return the new theta
      */
     double[] calculateTheta(double learningRate, double[] theta, double[] derivativeTheta);
+
+    /**
+     * Update Thetas in place
+     *
+     * @param learningRate    Learning Rate
+     * @param theta           Theta. It is overwritten by the new theta.
+     * @param derivativeTheta The derivative of Theta
+     */
+    default void updateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
+        for (int i = 0; i < theta.length; i++) {
+            theta[i] = calculateTheta(i, learningRate, theta[i], derivativeTheta[i]);
+        }
+    }
+
+    /**
+     * Update Thetas in place and project them into the bounds
+     *
+     * @param learningRate    Learning Rate
+     * @param theta           Theta. It is overwritten by the new theta.
+     * @param derivativeTheta The derivative of Theta
+     * @param lowerBound      Lower bound of each theta. NaN for unbounded.
+     * @param upperBound      Upper bound of each theta. NaN for unbounded.
+     */
+    default void updateTheta(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        updateTheta(learningRate, theta, derivativeTheta);
+        for (int i = 0; i < theta.length; i++) {
+            theta[i] = project(theta[i], lowerBound[i], upperBound[i]);
+        }
+    }
+
+    /**
+     * Project a theta into the bounds
+     *
+     * @param theta      Theta
+     * @param lowerBound Lower bound. NaN for unbounded.
+     * @param upperBound Upper bound. NaN for unbounded.
+     * @return Return the projected theta
+     */
+    static double project(double theta, double lowerBound, double upperBound) {
+        // Comparison with NaN is always false
+        if (theta < lowerBound)
+            return lowerBound;
+        if (theta > upperBound)
+            return upperBound;
+        return theta;
+    }
 }
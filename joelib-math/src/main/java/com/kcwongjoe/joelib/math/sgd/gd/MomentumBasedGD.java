@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.gd;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Momentum-based gradient descent
  **/
@@ -57,6 +61,11 @@ public class MomentumBasedGD implements GradientDescentMethod {
         return "Momentum Based Gradient Descent: momentumCoefficient = " + this.momentumCoefficient;
     }
 
+    @Override
+    public MomentumBasedGD copy() {
+        return new MomentumBasedGD(this.momentumCoefficient);
+    }
+
     @Override
     public void Reset(int length) {
         this.currentMomentumCoefficient = new double[length];
@@ -65,6 +74,30 @@ public class MomentumBasedGD implements GradientDescentMethod {
         }
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        if (this.currentMomentumCoefficient == null)
+            throw new IllegalStateException("Please reset().");
+
+        out.writeInt(this.currentMomentumCoefficient.length);
+        for (int i = 0; i < this.currentMomentumCoefficient.length; i++) {
+            out.writeDouble(this.currentMomentumCoefficient[i]);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        Reset(in.readInt());
+        for (int i = 0; i < this.currentMomentumCoefficient.length; i++) {
+            this.currentMomentumCoefficient[i] = in.readDouble();
+        }
+    }
+
     // region calculateTheta
 
     @Override
@@ -91,12 +124,36 @@ public class MomentumBasedGD implements GradientDescentMethod {
     @Override
     public double[] calculateTheta(double learningRate, double[] theta, double[] derivativeTheta){
 
-        double[] newTheta = new double[theta.length];
+        double[] newTheta = theta.clone();
+        updateTheta(learningRate, newTheta, derivativeTheta);
+
+        return newTheta;
+    }
+
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
+        if (currentMomentumCoefficient == null)
+            throw new ArithmeticException("Please reset().");
+
+        double[] coefficients = this.currentMomentumCoefficient;
         for (int i = 0; i < theta.length; i++) {
-            newTheta[i] = calculateTheta(i, learningRate, theta[i], derivativeTheta[i]);
+            double gradient = momentumCoefficient * coefficients[i] - learningRate * derivativeTheta[i];
+            coefficients[i] = gradient;
+            theta[i] = theta[i] + gradient;
         }
+    }
 
-        return newTheta;
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        if (currentMomentumCoefficient == null)
+            throw new ArithmeticException("Please reset().");
+
+        double[] coefficients = this.currentMomentumCoefficient;
+        for (int i = 0; i < theta.length; i++) {
+            double gradient = momentumCoefficient * coefficients[i] - learningRate * derivativeTheta[i];
+            coefficients[i] = gradient;
+            theta[i] = GradientDescentMethod.project(theta[i] + gradient, lowerBound[i], upperBound[i]);
+        }
     }
 
 
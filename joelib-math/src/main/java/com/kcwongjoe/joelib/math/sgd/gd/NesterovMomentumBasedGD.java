@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.gd;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Nesterov momentum-based gradient descent
  * Created by JOE Wong on 6/8/2020
@@ -59,6 +63,11 @@ public class NesterovMomentumBasedGD implements GradientDescentMethod {
         return "Nesterov Momentum Based Gradient Descent: momentumCoefficient = " + this.momentumCoefficient;
     }
 
+    @Override
+    public NesterovMomentumBasedGD copy() {
+        return new NesterovMomentumBasedGD(this.momentumCoefficient);
+    }
+
     @Override
     public void Reset(int length) {
         this.currentMomentumCoefficient = new double[length];
@@ -67,6 +76,30 @@ public class NesterovMomentumBasedGD implements GradientDescentMethod {
         }
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        if (this.currentMomentumCoefficient == null)
+            throw new IllegalStateException("Please reset().");
+
+        out.writeInt(this.currentMomentumCoefficient.length);
+        for (int i = 0; i < this.currentMomentumCoefficient.length; i++) {
+            out.writeDouble(this.currentMomentumCoefficient[i]);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        Reset(in.readInt());
+        for (int i = 0; i < this.currentMomentumCoefficient.length; i++) {
+            this.currentMomentumCoefficient[i] = in.readDouble();
+        }
+    }
+
     // region calculateTheta
 
     @Override
@@ -94,12 +127,38 @@ public class NesterovMomentumBasedGD implements GradientDescentMethod {
     @Override
     public double[] calculateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
 
-        double[] newTheta = new double[theta.length];
+        double[] newTheta = theta.clone();
+        updateTheta(learningRate, newTheta, derivativeTheta);
+
+        return newTheta;
+    }
+
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
+        if (currentMomentumCoefficient == null)
+            throw new ArithmeticException("Please reset().");
+
+        double[] coefficients = this.currentMomentumCoefficient;
         for (int i = 0; i < theta.length; i++) {
-            newTheta[i] = calculateTheta(i, learningRate, theta[i], derivativeTheta[i]);
+            double previous = this.momentumCoefficient * coefficients[i];
+            double coefficient = previous - learningRate * derivativeTheta[i];
+            coefficients[i] = coefficient;
+            theta[i] = theta[i] - previous + (1.0 + this.momentumCoefficient) * coefficient;
         }
+    }
 
-        return newTheta;
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        if (currentMomentumCoefficient == null)
+            throw new ArithmeticException("Please reset().");
+
+        double[] coefficients = this.currentMomentumCoefficient;
+        for (int i = 0; i < theta.length; i++) {
+            double previous = this.momentumCoefficient * coefficients[i];
+            double coefficient = previous - learningRate * derivativeTheta[i];
+            coefficients[i] = coefficient;
+            theta[i] = GradientDescentMethod.project(theta[i] - previous + (1.0 + this.momentumCoefficient) * coefficient, lowerBound[i], upperBound[i]);
+        }
     }
 
 
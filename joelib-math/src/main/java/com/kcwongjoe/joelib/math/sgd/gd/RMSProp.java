@@ -0,0 +1,92 @@
+package com.kcwongjoe.joelib.math.sgd.gd;
+
+/**
+ * RMSProp
+ * <p>
+ * Scale the step by a moving average of the squared gradient, so the step size does not collapse like Adagrad.
+ * <p>
+ * reference: http://www.cs.toronto.edu/~tijmen/csc321/slides/lecture_slides_lec6.pdf
+ **/
+public class RMSProp extends AdaptiveGradientDescent {
+
+    private double rho;
+
+    // region Constructor
+
+    /**
+     * Constructor
+     * Set rho = 0.9, eps = 1e-8
+     */
+    public RMSProp() {
+        this(0.9, 1e-8);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param rho Decay rate of the squared gradient average
+     * @param eps eps
+     */
+    public RMSProp(double rho, double eps) {
+        super(1, eps);
+        setRho(rho);
+    }
+
+    // endregion
+
+    // region getter and setter
+
+    /**
+     * Get rho
+     *
+     * @return Return rho
+     */
+    public double getRho() {
+        return rho;
+    }
+
+    /**
+     * Set rho
+     *
+     * @param rho rho, Must be between 0 and 1
+     */
+    public void setRho(double rho) {
+        if (rho < 0 || rho > 1)
+            throw new IllegalArgumentException("rho (" + rho + ") must be between 0 and 1.");
+
+        this.rho = rho;
+    }
+
+    // endregion
+
+    @Override
+    public String toString() {
+        return "RMSProp: rho = " + this.rho + ", eps = " + getEps();
+    }
+
+    @Override
+    public RMSProp copy() {
+        return new RMSProp(this.rho, getEps());
+    }
+
+    @Override
+    protected void update(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        double eps = getEps();
+        double[] vts = this.moments[0];
+        for (int i = 0; i < theta.length; i++) {
+            double newTheta = next(vts, i, learningRate, theta[i], derivativeTheta[i], eps);
+            theta[i] = lowerBound == null ? newTheta : GradientDescentMethod.project(newTheta, lowerBound[i], upperBound[i]);
+        }
+    }
+
+    @Override
+    protected double step(int index, double learningRate, double theta, double derivativeTheta, long iteration) {
+        return next(this.moments[0], index, learningRate, theta, derivativeTheta, getEps());
+    }
+
+    private double next(double[] vts, int i, double learningRate, double theta, double derivativeTheta, double eps) {
+        double vt = this.rho * vts[i] + (1.0 - this.rho) * (derivativeTheta * derivativeTheta);
+        vts[i] = vt;
+        return theta - learningRate * derivativeTheta / (Math.sqrt(vt) + eps);
+    }
+}
@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.gd;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Gradient descent
  * <p>
@@ -18,11 +22,31 @@ public class StandardGradientDescent implements GradientDescentMethod {
 
     // endregion
 
+    @Override
+    public StandardGradientDescent copy() {
+        return new StandardGradientDescent();
+    }
+
     @Override
     public void Reset(int length) {
 
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+
+    }
+
     // region calculateTheta
 
     @Override
@@ -40,12 +64,24 @@ public class StandardGradientDescent implements GradientDescentMethod {
     @Override
     public double[] calculateTheta(double learningRate, double[] theta, double[] derivativeTheta){
 
-        double[] newTheta = new double[theta.length];
+        double[] newTheta = theta.clone();
+        updateTheta(learningRate, newTheta, derivativeTheta);
+
+        return newTheta;
+    }
+
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
         for (int i = 0; i < theta.length; i++) {
-            newTheta[i] = calculateTheta(i, learningRate, theta[i], derivativeTheta[i]);
+            theta[i] = theta[i] - learningRate * derivativeTheta[i];
         }
+    }
 
-        return newTheta;
+    @Override
+    public void updateTheta(double learningRate, double[] theta, double[] derivativeTheta, double[] lowerBound, double[] upperBound) {
+        for (int i = 0; i < theta.length; i++) {
+            theta[i] = GradientDescentMethod.project(theta[i] - learningRate * derivativeTheta[i], lowerBound[i], upperBound[i]);
+        }
     }
 
 
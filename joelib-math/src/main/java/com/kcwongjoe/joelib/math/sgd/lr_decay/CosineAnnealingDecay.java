@@ -0,0 +1,153 @@
+package com.kcwongjoe.joelib.math.sgd.lr_decay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Cosine annealing with warm restarts
+ * <p>
+ * learning rate = minLearningRate + (initLearningRate - minLearningRate) * (1 + cos(pi * t / period)) / 2
+ * <p>
+ * t restarts from 0 after every period, and the period is multiplied by periodMultiplier after every restart.
+ * <p>
+ * reference: https://arxiv.org/abs/1608.03983
+ **/
+public class CosineAnnealingDecay implements LearningRateDecayMethod {
+
+    private int period = 10;
+    private int periodMultiplier = 1;
+    private double minLearningRate = 0;
+
+    // region Constructor
+
+    /**
+     * Constructor
+     */
+    public CosineAnnealingDecay() {
+
+    }
+
+    /**
+     * Constructor
+     *
+     * @param period           Number of epochs of the first period, default:10
+     * @param periodMultiplier Multiplier of the period after every restart, default:1
+     * @param minLearningRate  Learning rate at the end of a period, default:0
+     */
+    public CosineAnnealingDecay(int period, int periodMultiplier, double minLearningRate) {
+        setPeriod(period);
+        setPeriodMultiplier(periodMultiplier);
+        setMinLearningRate(minLearningRate);
+    }
+
+    // endregion
+
+    // region getter and setter
+
+    /**
+     * Get period
+     * @return Return the number of epochs of the first period
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Set period
+     * @param period Number of epochs of the first period. Must be &gt; 0
+     */
+    public void setPeriod(int period) {
+        if (period <= 0)
+            throw new IllegalArgumentException("period (" + period + ") must be > 0.");
+
+        this.period = period;
+    }
+
+    /**
+     * Get period multiplier
+     * @return Return the period multiplier
+     */
+    public int getPeriodMultiplier() {
+        return periodMultiplier;
+    }
+
+    /**
+     * Set period multiplier
+     * @param periodMultiplier Multiplier of the period after every restart. Must be &gt; 0
+     */
+    public void setPeriodMultiplier(int periodMultiplier) {
+        if (periodMultiplier <= 0)
+            throw new IllegalArgumentException("periodMultiplier (" + periodMultiplier + ") must be > 0.");
+
+        this.periodMultiplier = periodMultiplier;
+    }
+
+    /**
+     * Get min learning rate
+     * @return Return the min learning rate
+     */
+    public double getMinLearningRate() {
+        return minLearningRate;
+    }
+
+    /**
+     * Set min learning rate
+     * @param minLearningRate Learning rate at the end of a period. Must be &gt;= 0
+     */
+    public void setMinLearningRate(double minLearningRate) {
+        if (minLearningRate < 0)
+            throw new IllegalArgumentException("minLearningRate (" + minLearningRate + ") must be >= 0.");
+
+        this.minLearningRate = minLearningRate;
+    }
+
+    // endregion
+
+    @Override
+    public String toString(){
+        return "Cosine Annealing Decay: period = " + this.period + ", periodMultiplier = " + this.periodMultiplier + ", minLearningRate = " + this.minLearningRate;
+    }
+
+    @Override
+    public CosineAnnealingDecay copy() {
+        return new CosineAnnealingDecay(this.period, this.periodMultiplier, this.minLearningRate);
+    }
+
+    @Override
+    public void reset() {
+
+    }
+
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+
+    }
+
+    @Override
+    public double getLearningrate(double initLearningRate, double currentLearningRate, int iteration, double loss) {
+        // Find the position in the current period
+        long t = iteration;
+        long currentPeriod = this.period;
+        if (this.periodMultiplier == 1) {
+            t = t % currentPeriod;
+        } else {
+            while (t >= currentPeriod) {
+                t -= currentPeriod;
+                currentPeriod *= this.periodMultiplier;
+            }
+        }
+
+        return this.minLearningRate + (initLearningRate - this.minLearningRate) * (1 + Math.cos(Math.PI * t / currentPeriod)) / 2;
+    }
+}
@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.lr_decay;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Exponential decay
  * <p>
@@ -81,11 +85,31 @@ public class ExponentialDecay implements LearningRateDecayMethod {
         return "Exponential Decay: alpha = " + this.alpha + ", k = " + this.k;
     }
 
+    @Override
+    public ExponentialDecay copy() {
+        return new ExponentialDecay(this.alpha, this.k);
+    }
+
     @Override
     public void reset() {
 
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+
+    }
+
     @Override
     public double getLearningrate(double initLearningRate, double currentLearningRate, int iteration, double loss) {
         return initLearningRate * this.alpha * Math.exp(-iteration * this.k);
@@ -1,6 +1,8 @@
 package com.kcwongjoe.joelib.math.sgd.lr_decay;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Learning rate decay when the loss is increasing.
@@ -10,7 +12,7 @@ public class JumpDecay implements LearningRateDecayMethod {
     private double decayRate = 0.7;
     private int decayStep = 5;
 
-    private ArrayList<Double> lossBuffer;
+    private double lastLoss;
     private int reduceIterationHistory = 0;
 
     /**
@@ -61,24 +63,57 @@ public class JumpDecay implements LearningRateDecayMethod {
         return "Jump Decay: Decay Rate = " + this.decayRate;
     }
 
+    @Override
+    public JumpDecay copy() {
+        JumpDecay copy = new JumpDecay();
+        copy.setDecayRate(this.decayRate);
+        copy.setDecayStep(this.decayStep);
+        return copy;
+    }
+
     @Override
     public void reset(){
-        this.lossBuffer = new ArrayList<Double>();
+        this.lastLoss = Double.NaN;
         this.reduceIterationHistory = 0;
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(this.reduceIterationHistory);
+        out.writeBoolean(!Double.isNaN(this.lastLoss));
+        if (!Double.isNaN(this.lastLoss))
+            out.writeDouble(this.lastLoss);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        reset();
+        this.reduceIterationHistory = in.readInt();
+        if (in.readBoolean())
+            this.lastLoss = in.readDouble();
+    }
+
     @Override
     public double getLearningrate(double initLearningRate, double currentLearningRate, int iteration, double loss) {
+        // Ignore the epochs without the loss
+        if (Double.isNaN(loss))
+            return currentLearningRate;
+
         if (iteration - this.reduceIterationHistory > this.decayStep){
             // Reduce
-            if (loss > lossBuffer.get(lossBuffer.size() - 1))
+            if (loss > this.lastLoss)
                 currentLearningRate = currentLearningRate * this.decayRate;
 
             this.reduceIterationHistory = iteration;
         }
 
-        // Add
-        lossBuffer.add(loss);
+        // Only the last loss is compared
+        this.lastLoss = loss;
 
         return currentLearningRate;
     }
@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.lr_decay;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Learning Rate Decay Method interface
  **/
@@ -10,13 +14,50 @@ public interface LearningRateDecayMethod {
      */
     void reset();
 
+    /**
+     * Create a new instance with the same settings. The internal state is not copied.
+     *
+     * @return Return the new instance
+     */
+    LearningRateDecayMethod copy();
+
+    /**
+     * Whether {@link #writeState(DataOutput)} and {@link #readState(DataInput)} are implemented
+     *
+     * @return Return true if the internal state can be checkpointed.
+     */
+    default boolean supportsCheckpoint() {
+        return false;
+    }
+
+    /**
+     * Write the internal state for checkpoint
+     *
+     * @param out Output
+     * @throws IOException If an I/O error occurs
+     */
+    default void writeState(DataOutput out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support checkpoint.");
+    }
+
+    /**
+     * Restore the internal state written by {@link #writeState(DataOutput)}
+     *
+     * @param in Input
+     * @throws IOException If an I/O error occurs
+     */
+    default void readState(DataInput in) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support checkpoint.");
+    }
+
     /**
      * Get learning rate
      *
      * @param initLearningRate    The initial learning rate when iteration = 0
      * @param currentLearningRate The current learning rate when iteration = 0
      * @param iteration           The current iteration
-     * @param loss                The loss on the previous training
+     * @param loss                The loss on the previous training. NaN if the loss of the previous epoch is not evaluated,
+     *                            e.g. between the loss evaluation interval.
      * @return Return the current learning rate
      */
     double getLearningrate(double initLearningRate, double currentLearningRate, int iteration, double loss);
@@ -0,0 +1,123 @@
+package com.kcwongjoe.joelib.math.sgd.lr_decay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Linear warmup
+ * <p>
+ * learning rate = initLearningRate * (iteration + 1) / warmupEpochs in the first warmupEpochs epochs. Then the
+ * decay method after the warmup takes over, starting from iteration 0. The learning rate stays at initLearningRate
+ * if there is no decay method after the warmup.
+ **/
+public class LinearWarmup implements LearningRateDecayMethod {
+
+    private int warmupEpochs = 5;
+    private LearningRateDecayMethod after = null;
+
+    // region Constructor
+
+    /**
+     * Constructor
+     */
+    public LinearWarmup() {
+
+    }
+
+    /**
+     * Constructor
+     *
+     * @param warmupEpochs Number of warmup epochs, default:5
+     * @param after        Decay method after the warmup. Set it as null to keep the initial learning rate.
+     */
+    public LinearWarmup(int warmupEpochs, LearningRateDecayMethod after) {
+        setWarmupEpochs(warmupEpochs);
+        setAfter(after);
+    }
+
+    // endregion
+
+    // region getter and setter
+
+    /**
+     * Get warmup epochs
+     * @return Return the number of warmup epochs
+     */
+    public int getWarmupEpochs() {
+        return warmupEpochs;
+    }
+
+    /**
+     * Set warmup epochs
+     * @param warmupEpochs Number of warmup epochs. Must be &gt; 0
+     */
+    public void setWarmupEpochs(int warmupEpochs) {
+        if (warmupEpochs <= 0)
+            throw new IllegalArgumentException("warmupEpochs (" + warmupEpochs + ") must be > 0.");
+
+        this.warmupEpochs = warmupEpochs;
+    }
+
+    /**
+     * Get the decay method after the warmup
+     * @return Return the decay method. Null if none.
+     */
+    public LearningRateDecayMethod getAfter() {
+        return after;
+    }
+
+    /**
+     * Set the decay method after the warmup
+     * @param after Decay method. Set it as null to keep the initial learning rate.
+     */
+    public void setAfter(LearningRateDecayMethod after) {
+        this.after = after;
+    }
+
+    // endregion
+
+    @Override
+    public String toString(){
+        return "Linear Warmup: warmupEpochs = " + this.warmupEpochs + ", after = " + this.after;
+    }
+
+    @Override
+    public LinearWarmup copy() {
+        return new LinearWarmup(this.warmupEpochs, this.after != null ? this.after.copy() : null);
+    }
+
+    @Override
+    public void reset() {
+        if (this.after != null)
+            this.after.reset();
+    }
+
+    @Override
+    public boolean supportsCheckpoint() {
+        return this.after == null || this.after.supportsCheckpoint();
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        if (this.after != null)
+            this.after.writeState(out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        if (this.after != null)
+            this.after.readState(in);
+    }
+
+    @Override
+    public double getLearningrate(double initLearningRate, double currentLearningRate, int iteration, double loss) {
+        if (iteration < this.warmupEpochs)
+            return initLearningRate * (iteration + 1) / this.warmupEpochs;
+
+        if (this.after == null)
+            return initLearningRate;
+
+        return this.after.getLearningrate(initLearningRate, currentLearningRate, iteration - this.warmupEpochs, loss);
+    }
+}
@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.lr_decay;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * 1/t decay
  * <p>
@@ -81,11 +85,31 @@ public class OneOverTDecay implements LearningRateDecayMethod {
         return "1/t Decay: alpha = " + this.alpha + ", k = " + this.k;
     }
 
+    @Override
+    public OneOverTDecay copy() {
+        return new OneOverTDecay(this.alpha, this.k);
+    }
+
     @Override
     public void reset(){
 
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+
+    }
+
     @Override
     public double getLearningrate(double initLearningRate, double currentLearningRate, int iteration, double loss) {
         return initLearningRate * alpha / (1 + iteration * k);
@@ -0,0 +1,278 @@
+package com.kcwongjoe.joelib.math.sgd.lr_decay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reduce the learning rate when the loss stops improving.
+ * <p>
+ * The loss is smoothed by a moving average over the last <code>window</code> epochs, kept in a fixed-size ring
+ * buffer. If the smoothed loss does not improve the best one by more than <code>minDelta</code> for
+ * <code>patience</code> epochs, learning rate = learning rate * factor. No reduction happens in the
+ * <code>cooldown</code> epochs after a reduction.
+ * <p>
+ * Epochs without an evaluated loss (NaN) are ignored, so the window, patience and cooldown count loss evaluations.
+ **/
+public class PlateauDecay implements LearningRateDecayMethod {
+
+    private double factor = 0.5;
+    private int patience = 10;
+    private int cooldown = 0;
+    private double minDelta = 0;
+    private double minLearningRate = 0;
+    private int window = 1;
+
+    // State
+    private double[] lossBuffer;
+    private int lossCount;
+    private int lossHead;
+    private double bestLoss;
+    private int numOfBadEpochs;
+    private int cooldownCounter;
+
+    // region Constructor
+
+    /**
+     * Constructor
+     * Set factor = 0.5, patience = 10
+     */
+    public PlateauDecay() {
+        reset();
+    }
+
+    /**
+     * Constructor
+     *
+     * @param factor   The ratio of decay learning rate, between 0 and 1
+     * @param patience Number of epochs without improvement before the reduction
+     */
+    public PlateauDecay(double factor, int patience) {
+        setFactor(factor);
+        setPatience(patience);
+        reset();
+    }
+
+    // endregion
+
+    // region getter and setter
+
+    /**
+     * Get factor
+     * @return Return the factor
+     */
+    public double getFactor() {
+        return factor;
+    }
+
+    /**
+     * Set factor
+     * @param factor The ratio of decay learning rate, between 0 and 1
+     */
+    public void setFactor(double factor) {
+        if (factor <= 0 || factor >= 1)
+            throw new IllegalArgumentException("factor (" + factor + ") must be between 0 and 1.");
+
+        this.factor = factor;
+    }
+
+    /**
+     * Get patience
+     * @return Return the patience
+     */
+    public int getPatience() {
+        return patience;
+    }
+
+    /**
+     * Set patience
+     * @param patience Number of epochs without improvement before the reduction. Must be &gt; 0
+     */
+    public void setPatience(int patience) {
+        if (patience <= 0)
+            throw new IllegalArgumentException("patience (" + patience + ") must be > 0.");
+
+        this.patience = patience;
+    }
+
+    /**
+     * Get cooldown
+     * @return Return the cooldown
+     */
+    public int getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * Set cooldown
+     * @param cooldown Number of epochs without reduction after a reduction. Must be &gt;= 0
+     */
+    public void setCooldown(int cooldown) {
+        if (cooldown < 0)
+            throw new IllegalArgumentException("cooldown (" + cooldown + ") must be >= 0.");
+
+        this.cooldown = cooldown;
+    }
+
+    /**
+     * Get min delta
+     * @return Return the min delta
+     */
+    public double getMinDelta() {
+        return minDelta;
+    }
+
+    /**
+     * Set min delta
+     * @param minDelta Minimum decrease of the loss counted as an improvement. Must be &gt;= 0
+     */
+    public void setMinDelta(double minDelta) {
+        if (minDelta < 0)
+            throw new IllegalArgumentException("minDelta (" + minDelta + ") must be >= 0.");
+
+        this.minDelta = minDelta;
+    }
+
+    /**
+     * Get min learning rate
+     * @return Return the min learning rate
+     */
+    public double getMinLearningRate() {
+        return minLearningRate;
+    }
+
+    /**
+     * Set min learning rate
+     * @param minLearningRate Lower bound of the learning rate. Must be &gt;= 0
+     */
+    public void setMinLearningRate(double minLearningRate) {
+        if (minLearningRate < 0)
+            throw new IllegalArgumentException("minLearningRate (" + minLearningRate + ") must be >= 0.");
+
+        this.minLearningRate = minLearningRate;
+    }
+
+    /**
+     * Get window
+     * @return Return the window of the loss moving average
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Set window. It resets the state.
+     * @param window Number of epochs in the loss moving average. Must be &gt; 0
+     */
+    public void setWindow(int window) {
+        if (window <= 0)
+            throw new IllegalArgumentException("window (" + window + ") must be > 0.");
+
+        this.window = window;
+        reset();
+    }
+
+    // endregion
+
+    @Override
+    public String toString(){
+        return "Plateau Decay: factor = " + this.factor + ", patience = " + this.patience + ", cooldown = " + this.cooldown + ", minDelta = " + this.minDelta + ", window = " + this.window;
+    }
+
+    @Override
+    public PlateauDecay copy() {
+        PlateauDecay copy = new PlateauDecay(this.factor, this.patience);
+        copy.setCooldown(this.cooldown);
+        copy.setMinDelta(this.minDelta);
+        copy.setMinLearningRate(this.minLearningRate);
+        copy.setWindow(this.window);
+        return copy;
+    }
+
+    @Override
+    public void reset() {
+        if (this.lossBuffer == null || this.lossBuffer.length != this.window)
+            this.lossBuffer = new double[this.window];
+        this.lossCount = 0;
+        this.lossHead = 0;
+        this.bestLoss = Double.POSITIVE_INFINITY;
+        this.numOfBadEpochs = 0;
+        this.cooldownCounter = 0;
+    }
+
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(this.window);
+        out.writeInt(this.lossCount);
+        out.writeInt(this.lossHead);
+        for (int i = 0; i < this.window; i++) {
+            out.writeDouble(this.lossBuffer[i]);
+        }
+        out.writeDouble(this.bestLoss);
+        out.writeInt(this.numOfBadEpochs);
+        out.writeInt(this.cooldownCounter);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int window = in.readInt();
+        if (window != this.window)
+            throw new IOException("window (" + window + ") must be = " + this.window);
+
+        reset();
+        this.lossCount = in.readInt();
+        this.lossHead = in.readInt();
+        for (int i = 0; i < this.window; i++) {
+            this.lossBuffer[i] = in.readDouble();
+        }
+        this.bestLoss = in.readDouble();
+        this.numOfBadEpochs = in.readInt();
+        this.cooldownCounter = in.readInt();
+    }
+
+    @Override
+    public double getLearningrate(double initLearningRate, double currentLearningRate, int iteration, double loss) {
+        // No loss on the first epoch or if the loss is not evaluated on the previous epoch
+        if (!(loss >= 0))
+            return currentLearningRate;
+
+        // Moving average
+        this.lossBuffer[this.lossHead] = loss;
+        this.lossHead = (this.lossHead + 1) % this.window;
+        if (this.lossCount < this.window)
+            this.lossCount++;
+        double lossSum = 0;
+        for (int i = 0; i < this.lossCount; i++) {
+            lossSum += this.lossBuffer[i];
+        }
+        double averageLoss = lossSum / this.lossCount;
+
+        // Check improvement
+        if (averageLoss < this.bestLoss - this.minDelta) {
+            this.bestLoss = averageLoss;
+            this.numOfBadEpochs = 0;
+        } else {
+            this.numOfBadEpochs++;
+        }
+
+        // Ignore bad epochs in cooldown
+        if (this.cooldownCounter > 0) {
+            this.cooldownCounter--;
+            this.numOfBadEpochs = 0;
+        }
+
+        // Reduce
+        if (this.numOfBadEpochs >= this.patience) {
+            currentLearningRate = Math.max(currentLearningRate * this.factor, this.minLearningRate);
+            this.cooldownCounter = this.cooldown;
+            this.numOfBadEpochs = 0;
+        }
+
+        return currentLearningRate;
+    }
+}
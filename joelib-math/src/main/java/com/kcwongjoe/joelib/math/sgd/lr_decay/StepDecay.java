@@ -1,5 +1,9 @@
 package com.kcwongjoe.joelib.math.sgd.lr_decay;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Step decay
  *
@@ -80,11 +84,34 @@ public class StepDecay implements LearningRateDecayMethod {
         return "Step Decay: decayLearnRate = " + this.decayLearnRate + ", decayEpochs = " + this.decayEpochs;
     }
 
+    @Override
+    public StepDecay copy() {
+        StepDecay copy = new StepDecay();
+        copy.setDecayLearnRate(this.decayLearnRate);
+        copy.setDecayEpochs(this.decayEpochs);
+        return copy;
+    }
+
     @Override
     public void reset(){
 
     }
 
+    @Override
+    public boolean supportsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+
+    }
+
     @Override
     public double getLearningrate(double initLearningRate, double currentLearningRate, int iteration, double loss) {
         return initLearningRate * Math.pow(this.decayLearnRate, iteration / this.decayEpochs);
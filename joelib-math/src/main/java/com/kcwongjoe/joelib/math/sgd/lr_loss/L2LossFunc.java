@@ -17,4 +17,9 @@ public class L2LossFunc implements LossFunction {
     public double derivativeLoss(double y, double fx, double dfdtheta){
         return -(y - fx) * dfdtheta;
     }
+
+    @Override
+    public double derivativeLoss(double y, double fx) {
+        return -(y - fx);
+    }
 }
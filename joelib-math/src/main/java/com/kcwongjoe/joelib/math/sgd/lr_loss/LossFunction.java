@@ -22,4 +22,18 @@ public interface LossFunction {
      * @return Return the derivative of loss
      */
     double derivativeLoss(double y, double fx, double dfdtheta);
+
+    /**
+     * Calculate the derivative of loss function with respect to f(x).
+     * <p>
+     * By chain rule, dLoss/dtheta = dLoss/df(x) * df(x)/dtheta, so the gradient of all parameters can be calculated
+     * by one call per sample.
+     *
+     * @param y The true value on x
+     * @param fx The predict value on x
+     * @return Return dLoss/df(x)
+     */
+    default double derivativeLoss(double y, double fx) {
+        return derivativeLoss(y, fx, 1);
+    }
 }
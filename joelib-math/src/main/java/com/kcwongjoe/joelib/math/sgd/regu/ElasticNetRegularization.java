@@ -0,0 +1,113 @@
+package com.kcwongjoe.joelib.math.sgd.regu;
+
+import com.kcwongjoe.joelib.JGeneralUtils;
+import com.kcwongjoe.joelib.math.CumulativeAverage;
+
+/**
+ * Elastic net Regularization - lamba / n * (l1Ratio * (|a0| + ... + |an|) + (1 - l1Ratio) * (a0^2 + ... + an^2))
+ **/
+public class ElasticNetRegularization implements Regularization {
+
+    public double lamba = 0;
+    public double l1Ratio = 0;
+    private double[] normalizeTheta = null;
+
+    // region Constructor
+
+    /**
+     * Constructor
+     * Set lamba = 0.3, l1Ratio = 0.5
+     */
+    public ElasticNetRegularization() {
+        this(0.3, 0.5);
+    }
+
+    /**
+     * Constructor
+     * @param lamba   Lamba must be &gt;= 0
+     * @param l1Ratio Weight of the L1 term. Must be between 0 and 1
+     */
+    public ElasticNetRegularization(double lamba, double l1Ratio) {
+        if (lamba < 0)
+            throw new IllegalArgumentException("lamba (" + lamba + ") must be >= 0.");
+        if (l1Ratio < 0 || l1Ratio > 1)
+            throw new IllegalArgumentException("l1Ratio (" + l1Ratio + ") must be between 0 and 1.");
+
+        this.lamba = lamba;
+        this.l1Ratio = l1Ratio;
+    }
+
+    // endregion
+
+    // region getter and setter
+
+    @Override
+    public void setThetaNormalization(double[] thetaCeil) {
+        this.normalizeTheta = thetaCeil;
+    }
+
+    public double[] getThetaNormalization(){
+        return this.normalizeTheta;
+    }
+
+    // endregion
+
+    @Override
+    public String toString(){
+        return "Elastic net regularization: lamba = " + this.lamba + ", l1Ratio = " + this.l1Ratio + ", normalizeTheta = " + JGeneralUtils.toString(this.normalizeTheta);
+    }
+
+    @Override
+    public double loss(double[] theta) {
+        // Throw Exception
+        if (this.normalizeTheta != null && theta.length != this.normalizeTheta.length)
+            throw new IllegalArgumentException("The length of parameters (" + theta.length + ") must be = " + this.normalizeTheta.length + " or setParametersNormalization() as null. ");
+
+        // Calculate
+        CumulativeAverage average = new CumulativeAverage();
+        for (int i = 0; i < theta.length; i++) {
+            double value = this.normalizeTheta == null ? theta[i] : theta[i] / this.normalizeTheta[i];
+            average.add(this.l1Ratio * Math.abs(value) + (1 - this.l1Ratio) * value * value);
+        }
+        return this.lamba * average.getMean();
+    }
+
+    @Override
+    public void derivativeLoss(double[] theta, double[] derivative) {
+        // Throw Exception
+        if (this.normalizeTheta != null && theta.length != this.normalizeTheta.length)
+            throw new IllegalArgumentException("The length of parameters (" + theta.length + ") must be = " + this.normalizeTheta.length + " or setParametersNormalization() as null. ");
+
+        // d/da_i = lamba / n * (l1Ratio * sign(a_i) + 2 * (1 - l1Ratio) * a_i)
+        double scale = this.lamba / theta.length;
+        for (int i = 0; i < theta.length; i++) {
+            if (this.normalizeTheta == null) {
+                derivative[i] = scale * (this.l1Ratio * Math.signum(theta[i]) + 2 * (1 - this.l1Ratio) * theta[i]);
+            } else {
+                double normalize = this.normalizeTheta[i];
+                derivative[i] = scale * (this.l1Ratio * Math.signum(theta[i]) / Math.abs(normalize) + 2 * (1 - this.l1Ratio) * theta[i] / (normalize * normalize));
+            }
+        }
+    }
+
+    /**
+     * Calculate the mean of the regularization derivative over the parameters
+     *
+     * @param theta The function parameters
+     * @return Return the mean derivative
+     * @deprecated A single value can't be the derivative of every parameter. Use
+     * {@link #derivativeLoss(double[], double[])} instead.
+     */
+    @Deprecated
+    @Override
+    public double derivativeLoss(double[] theta) {
+        double[] derivative = new double[theta.length];
+        derivativeLoss(theta, derivative);
+
+        CumulativeAverage average = new CumulativeAverage();
+        for (int i = 0; i < theta.length; i++) {
+            average.add(derivative[i]);
+        }
+        return average.getMean();
+    }
+}
@@ -61,14 +61,32 @@ public class L1Regularization implements Regularization {
         CumulativeAverage average = new CumulativeAverage();
         for (int i = 0; i < theta.length; i++) {
             if (this.normalizeTheta == null) {
-                average.add(this.lamba * Math.abs(theta[i]));
+                average.add(Math.abs(theta[i]));
             } else {
-                average.add(this.lamba * Math.abs(theta[i] / this.normalizeTheta[i]));
+                average.add(Math.abs(theta[i] / this.normalizeTheta[i]));
             }
         }
         return this.lamba * average.getMean();
     }
 
+    @Override
+    public void derivativeLoss(double[] theta, double[] derivative) {
+        // Throw Exception
+        if (this.normalizeTheta != null && theta.length != this.normalizeTheta.length)
+            throw new IllegalArgumentException("The length of parameters (" + theta.length + ") must be = " + this.normalizeTheta.length + " or setParametersNormalization() as null. ");
+
+        // d/da_i = lamba / n * sign(a_i)
+        double scale = this.lamba / theta.length;
+        for (int i = 0; i < theta.length; i++) {
+            if (this.normalizeTheta == null) {
+                derivative[i] = scale * Math.signum(theta[i]);
+            } else {
+                derivative[i] = scale * Math.signum(theta[i]) / Math.abs(this.normalizeTheta[i]);
+            }
+        }
+    }
+
+    @Deprecated
     @Override
     public double derivativeLoss(double[] theta) {
 
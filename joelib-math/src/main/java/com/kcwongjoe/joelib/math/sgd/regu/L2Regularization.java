@@ -54,7 +54,7 @@ public class L2Regularization implements Regularization {
     @Override
     public double loss(double[] theta) {
         // Throw Exception
-        if (theta.length != this.normalizeTheta.length)
+        if (this.normalizeTheta != null && theta.length != this.normalizeTheta.length)
             throw new IllegalArgumentException("The length of parameters (" + theta.length + ") must be = " + this.normalizeTheta.length + " or setParametersNormalization() as null. ");
 
         // Calculate
@@ -70,6 +70,24 @@ public class L2Regularization implements Regularization {
         return this.lamba * average.getMean();
     }
 
+    @Override
+    public void derivativeLoss(double[] theta, double[] derivative) {
+        // Throw Exception
+        if (this.normalizeTheta != null && theta.length != this.normalizeTheta.length)
+            throw new IllegalArgumentException("The length of parameters (" + theta.length + ") must be = " + this.normalizeTheta.length + " or setParametersNormalization() as null. ");
+
+        // d/da_i = 2 * lamba / n * a_i
+        double scale = 2 * this.lamba / theta.length;
+        for (int i = 0; i < theta.length; i++) {
+            if (this.normalizeTheta == null) {
+                derivative[i] = scale * theta[i];
+            } else {
+                derivative[i] = scale * theta[i] / (this.normalizeTheta[i] * this.normalizeTheta[i]);
+            }
+        }
+    }
+
+    @Deprecated
     @Override
     public double derivativeLoss(double[] theta) {
         // Throw Exception
@@ -28,6 +28,22 @@ public interface Regularization {
      *
      * @param theta The function parameters
      * @return Retrun the result of the derivative of loss function
+     * @deprecated A single value can't be the derivative of every parameter. Use
+     * {@link #derivativeLoss(double[], double[])} instead.
      */
+    @Deprecated
     double derivativeLoss(double[] theta);
+
+    /**
+     * Calculate the term of regularization in derivative of loss function for each parameter
+     *
+     * @param theta      The function parameters
+     * @param derivative Output of the derivative of each parameter
+     */
+    default void derivativeLoss(double[] theta, double[] derivative) {
+        double value = derivativeLoss(theta);
+        for (int i = 0; i < theta.length; i++) {
+            derivative[i] = value;
+        }
+    }
 }
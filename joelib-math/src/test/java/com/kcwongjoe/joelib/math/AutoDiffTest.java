@@ -0,0 +1,114 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kcwongjoe.joelib.math.autodiff.AutoDiffObjectiveFunction;
+import com.kcwongjoe.joelib.math.autodiff.DualFunction;
+import com.kcwongjoe.joelib.math.autodiff.DualWorkspace;
+import com.kcwongjoe.joelib.math.func.ExponentiallyGaussianFunction;
+import com.kcwongjoe.joelib.math.func.GaussianFunction;
+import com.kcwongjoe.joelib.math.sgd.StochasticGradientDescent;
+
+public class AutoDiffTest {
+
+    /**
+     * f(x) = a * exp( -(x - b)^2 / (2 * c^2) )
+     */
+    private static final DualFunction GAUSSIAN = (ws, x) -> {
+        int z = ws.div(ws.sub(x, ws.parameter(1)), ws.parameter(2));
+        return ws.mul(ws.parameter(0), ws.exp(ws.mul(ws.sq(z), -0.5)));
+    };
+
+    /**
+     * f(x) = h * sigma / tau * sqrt(pi / 2) * exp( (sigma / tau)^2 / 2 - (x - u) / tau ) * erfc( (sigma / tau - (x - u) / sigma) / sqrt(2) )
+     */
+    private static final DualFunction EXPONENTIALLY_GAUSSIAN = (ws, x) -> {
+        int h = ws.parameter(0);
+        int u = ws.parameter(1);
+        int sigma = ws.parameter(2);
+        int tau = ws.parameter(3);
+
+        int sigmaOverTau = ws.div(sigma, tau);
+        int xu = ws.sub(x, u);
+        int factor = ws.mul(ws.mul(h, sigmaOverTau), Math.sqrt(Math.PI / 2));
+        int expTerm = ws.exp(ws.sub(ws.mul(ws.sq(sigmaOverTau), 0.5), ws.div(xu, tau)));
+        int erfcTerm = ws.erfc(ws.mul(ws.sub(sigmaOverTau, ws.div(xu, sigma)), 1 / Math.sqrt(2)));
+        return ws.mul(ws.mul(factor, expTerm), erfcTerm);
+    };
+
+    @Test
+    public void testGradient() {
+        double[] parameters = new double[] { 3, 10, 2 };
+        GaussianFunction gaussian = new GaussianFunction(3, 10, 2);
+        AutoDiffObjectiveFunction function = new AutoDiffObjectiveFunction(GAUSSIAN, parameters);
+
+        double[] x = new double[] { 5, 9, 10, 11.5, 16 };
+        double[] fx = new double[x.length];
+        double[] jacobian = new double[x.length * 3];
+        function.functionAndDerivative(x, 0, x.length, fx, jacobian);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals("Fail on value.", gaussian.calculate(x[i]), fx[i], 1e-14);
+            assertArrayEquals("Fail on gradient.", gaussian.derivativeParameters(x[i]), new double[] { jacobian[i * 3], jacobian[i * 3 + 1], jacobian[i * 3 + 2] }, 1e-14);
+        }
+        assertArrayEquals("Fail on value only.", fx, function.function(x), 0);
+    }
+
+    @Test
+    public void testExponentiallyGaussianGradient() {
+        double[] parameters = new double[] { 2, 10, 1.5, 3 };
+        ExponentiallyGaussianFunction emg = new ExponentiallyGaussianFunction(2, 10, 1.5, 3);
+        AutoDiffObjectiveFunction function = new AutoDiffObjectiveFunction(EXPONENTIALLY_GAUSSIAN, parameters);
+
+        double[] x = new double[] { 6, 9, 10, 12, 18 };
+        double[][] jacobian = function.derivativeFunctionParameters(x);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals("Fail on value.", emg.calculate(x[i]), function.function(new double[] { x[i] })[0], 1e-12);
+
+            // Central difference
+            for (int pi = 0; pi < parameters.length; pi++) {
+                double h = 1e-6;
+                double[] plus = parameters.clone();
+                double[] minus = parameters.clone();
+                plus[pi] += h;
+                minus[pi] -= h;
+                double expected = (new ExponentiallyGaussianFunction(plus[0], plus[1], plus[2], plus[3]).calculate(x[i])
+                        - new ExponentiallyGaussianFunction(minus[0], minus[1], minus[2], minus[3]).calculate(x[i])) / (2 * h);
+                assertEquals("Fail on parameter " + pi + " at x = " + x[i] + ".", expected, jacobian[i][pi], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testWorkspace() {
+        DualWorkspace ws = new DualWorkspace(2);
+        ws.setParameters(new double[] { 2, 3 });
+
+        // Grow beyond the initial capacity
+        int r = ws.parameter(0);
+        for (int i = 0; i < 100; i++) {
+            r = ws.add(r, ws.mul(ws.parameter(0), ws.parameter(1)));
+        }
+        assertEquals("Fail on value.", 2 + 100 * 6, ws.value(r), 0);
+        assertEquals("Fail on gradient.", 1 + 100 * 3, ws.gradient(r, 0), 0);
+        assertEquals("Fail on gradient.", 100 * 2, ws.gradient(r, 1), 0);
+
+        // Quotient, power and log
+        ws.clear();
+        r = ws.log(ws.div(ws.pow(ws.parameter(0), 3), ws.parameter(1)));
+        assertEquals("Fail on value.", Math.log(8.0 / 3), ws.value(r), 1e-15);
+        assertEquals("Fail on gradient.", 3.0 / 2, ws.gradient(r, 0), 1e-15);
+        assertEquals("Fail on gradient.", -1.0 / 3, ws.gradient(r, 1), 1e-15);
+    }
+
+    @Test
+    public void testSolve() {
+        double[][] data = StochasticGradientDescentTest.gaussianData(2000);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new AutoDiffObjectiveFunction(GAUSSIAN, new double[] { 1, 8, 1 }));
+        sgd.setMaxEpochs(500);
+        double[] theta = sgd.solve(data[0], data[1]);
+
+        assertArrayEquals("Fail on solve.", new double[] { 3, 10, 2 }, theta, 0.05);
+    }
+}
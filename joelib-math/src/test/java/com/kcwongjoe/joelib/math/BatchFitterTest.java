@@ -0,0 +1,53 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import com.kcwongjoe.joelib.math.func.GaussianFunction;
+import com.kcwongjoe.joelib.math.sgd.BatchFitResult;
+import com.kcwongjoe.joelib.math.sgd.BatchFitter;
+import com.kcwongjoe.joelib.math.sgd.LevenbergMarquardt;
+
+public class BatchFitterTest {
+
+    @Test
+    public void testSolve() {
+        // Peaks with different height and center
+        int numOfProblems = 200;
+        Random random = new Random(1);
+        double[][] x = new double[numOfProblems][];
+        double[][] y = new double[numOfProblems][];
+        double[][] truth = new double[numOfProblems][];
+        double[][] init = new double[numOfProblems][];
+        for (int k = 0; k < numOfProblems; k++) {
+            truth[k] = new double[] { 1 + k % 5, 8 + (k % 7) * 0.5, 2 };
+            init[k] = new double[] { truth[k][0] * 0.8, truth[k][1] - 0.5, 1.5 };
+
+            GaussianFunction gaussian = new GaussianFunction(truth[k][0], truth[k][1], truth[k][2]);
+            x[k] = new double[50];
+            y[k] = new double[50];
+            for (int i = 0; i < 50; i++) {
+                x[k][i] = i * 20.0 / 50;
+                y[k][i] = gaussian.calculate(x[k][i]) + 0.001 * random.nextGaussian();
+            }
+        }
+
+        LevenbergMarquardt lm = new LevenbergMarquardt(new StochasticGradientDescentTest.GaussianObjective(1, 8, 1));
+        BatchFitter fitter = new BatchFitter(lm, () -> new StochasticGradientDescentTest.GaussianObjective(1, 8, 1));
+        fitter.setNumOfWorkers(4);
+        BatchFitResult result = fitter.solve(x, y, init);
+
+        assertEquals("Fail on number of problems.", numOfProblems, result.getNumOfProblems());
+        double[][] parameters = result.getParameters();
+        for (int k = 0; k < numOfProblems; k++) {
+            assertArrayEquals("Fail on problem " + k + ".", truth[k], parameters[k], 0.01);
+            assertEquals("Fail on struct-of-arrays.", parameters[k][1], result.getParameter(1)[k], 0);
+        }
+
+        // Same result on a single worker
+        fitter.setNumOfWorkers(1);
+        assertArrayEquals("Fail on single worker.", result.getLosses(), fitter.solve(x, y, init).getLosses(), 0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kcwongjoe.joelib.math.sgd.ArrayDataSource;
+import com.kcwongjoe.joelib.math.sgd.MappedDataSource;
+import com.kcwongjoe.joelib.math.sgd.StochasticGradientDescent;
+
+public class DataSourceTest {
+
+    private static Path write(double[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (double value : values) {
+            buffer.putDouble(value);
+        }
+
+        Path path = Files.createTempFile("joelib", ".bin");
+        path.toFile().deleteOnExit();
+        Files.write(path, buffer.array());
+        return path;
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        double[][] data = StochasticGradientDescentTest.gaussianData(100);
+        MappedDataSource source = new MappedDataSource(write(data[0]), write(data[1]));
+
+        assertEquals("Fail on size.", 100, source.size());
+
+        double[] x = new double[30];
+        double[] y = new double[30];
+        source.read(65, 30, x, y);
+        for (int i = 0; i < 30; i++) {
+            assertEquals("Fail on x.", data[0][65 + i], x[i], 0);
+            assertEquals("Fail on y.", data[1][65 + i], y[i], 0);
+        }
+
+        try {
+            source.read(80, 30, x, y);
+            fail("Read out of range must throw.");
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testSolve() throws IOException {
+        double[][] data = StochasticGradientDescentTest.gaussianData(2000);
+        MappedDataSource source = new MappedDataSource(write(data[0]), write(data[1]));
+
+        // Full batch, same as arrays
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new StochasticGradientDescentTest.GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(100);
+        sgd.setBlockSize(300);
+        double[] expected = sgd.solve(data[0], data[1]);
+        assertArrayEquals("Fail on full batch.", expected, sgd.solve(source), 1e-9);
+        assertArrayEquals("Fail on array data source.", expected, sgd.solve(new ArrayDataSource(data[0], data[1])), 0);
+
+        // Mini-batch over shuffled blocks
+        sgd.setMaxEpochs(200);
+        sgd.setBatchSize(128);
+        sgd.setInitLearningRate(0.02);
+        sgd.setSeed(3L);
+        sgd.setStopAbsoluteLoss(0);
+        List<byte[]> checkpoints = new ArrayList<>();
+        sgd.setCheckpointListener((epoch, checkpoint) -> checkpoints.add(checkpoint), 50);
+        double[] theta = sgd.solve(source);
+        assertArrayEquals("Fail on mini-batch.", new double[] { 3, 10, 2 }, theta, 0.05);
+
+        // Resume
+        StochasticGradientDescent resumed = sgd.copy(new StochasticGradientDescentTest.GaussianObjective(1, 8, 1));
+        assertArrayEquals("Fail on resume.", theta, resumed.resume(checkpoints.get(1), source), 0);
+    }
+}
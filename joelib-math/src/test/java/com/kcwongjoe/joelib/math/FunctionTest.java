@@ -0,0 +1,137 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kcwongjoe.joelib.math.func.ExponentiallyGaussianFunction;
+import com.kcwongjoe.joelib.math.func.GaussErrorFunction;
+import com.kcwongjoe.joelib.math.func.GaussianFunction;
+
+public class FunctionTest {
+
+    @Test
+    public void testErf() {
+        // x, erf(x), erfc(x)
+        double[][] expected = new double[][] {
+                { -3, -0.9999779095030014, 1.9999779095030015 },
+                { -0.5, -0.5204998778130465, 1.5204998778130465 },
+                { 0, 0, 1 },
+                { 0.1, 0.1124629160182849, 0.8875370839817152 },
+                { 0.4, 0.42839235504666845, 0.5716076449533315 },
+                { 0.5, 0.5204998778130465, 0.4795001221869535 },
+                { 1, 0.8427007929497149, 0.15729920705028513 },
+                { 2.5, 0.999593047982555, 0.0004069520174449589 },
+                { 4, 0.9999999845827421, 1.541725790028002e-08 },
+                { 4.5, 0.9999999998033839, 1.9661604415428873e-10 },
+                { 6, 1, 2.1519736712498916e-17 },
+                { 10, 1, 2.088487583762545e-45 },
+                { 26, 1, 5.663192408856143e-296 } };
+
+        for (double[] e : expected) {
+            assertEquals("Fail on erf(" + e[0] + ").", e[1], GaussErrorFunction.erf(e[0]), 4 * Math.ulp(e[1]));
+            assertEquals("Fail on erfc(" + e[0] + ").", e[2], GaussErrorFunction.erfc(e[0]), 8 * Math.ulp(e[2]));
+        }
+
+        // The instance delegates to the static functions
+        GaussErrorFunction erf = new GaussErrorFunction();
+        for (double[] e : expected) {
+            assertEquals("Fail on calculate(" + e[0] + ").", GaussErrorFunction.erf(e[0]), erf.calculate(e[0]), 0);
+            assertEquals("Fail on calculateComplementary(" + e[0] + ").", GaussErrorFunction.erfc(e[0]), erf.calculateComplementary(e[0]), 0);
+        }
+        assertEquals("Fail on calculate(8).", 1, erf.calculate(8), 0);
+
+        assertEquals("Fail on erfc(30).", 0, GaussErrorFunction.erfc(30), 0);
+        assertEquals("Fail on erf(-Infinity).", -1, GaussErrorFunction.erf(Double.NEGATIVE_INFINITY), 0);
+        assertTrue("Fail on erf(NaN).", Double.isNaN(GaussErrorFunction.erf(Double.NaN)));
+        assertTrue("Fail on erfc(NaN).", Double.isNaN(GaussErrorFunction.erfc(Double.NaN)));
+    }
+
+    @Test
+    public void testErfcx() {
+        // x, exp(x^2) * erfc(x)
+        double[][] expected = new double[][] {
+                { -5, 144009798674.66104 },
+                { -1, 5.008980080762284 },
+                { 0, 1 },
+                { 0.3, 0.7345993345676551 },
+                { 1, 0.427583576155807 },
+                { 3, 0.17900115118138993 },
+                { 5, 0.11070463773306864 },
+                { 10, 0.05614099274382259 },
+                { 30, 0.01879588886141675 },
+                { 1e10, 5.641895835477563e-11 } };
+
+        for (double[] e : expected) {
+            assertEquals("Fail on erfcx(" + e[0] + ").", e[1], GaussErrorFunction.erfcx(e[0]), 8 * Math.ulp(e[1]));
+        }
+        assertEquals("Fail on erfcx(-30).", Double.POSITIVE_INFINITY, GaussErrorFunction.erfcx(-30), 0);
+    }
+
+    @Test
+    public void testErfArray() {
+        double[] x = new double[] { -30, -3, -0.2, 0, 0.4, 2, 5, 27, Double.NaN };
+        double[] erf = new double[x.length];
+        double[] erfc = new double[x.length];
+        double[] erfcx = new double[x.length];
+        GaussErrorFunction.erf(x, erf);
+        GaussErrorFunction.erfc(x, erfc);
+        GaussErrorFunction.erfcx(x, erfcx);
+
+        for (int i = 0; i < x.length; i++) {
+            assertEquals("Fail on erf.", GaussErrorFunction.erf(x[i]), erf[i], 0);
+            assertEquals("Fail on erfc.", GaussErrorFunction.erfc(x[i]), erfc[i], 0);
+            assertEquals("Fail on erfcx.", GaussErrorFunction.erfcx(x[i]), erfcx[i], 0);
+        }
+
+        // In place
+        GaussErrorFunction.erf(x, x);
+        assertArrayEquals("Fail on in place.", erf, x, 0);
+    }
+
+    @Test
+    public void testGaussianValueAndGradient() {
+        GaussianFunction gaussian = new GaussianFunction(3, 10, 2);
+        double[] x = new double[] { 5, 9, 10, 11.5, 16 };
+
+        double[] fx = new double[x.length];
+        double[] jacobian = new double[x.length * 3];
+        gaussian.valueAndGradient(x, fx, jacobian);
+
+        for (int i = 0; i < x.length; i++) {
+            assertEquals("Fail on value.", gaussian.calculate(x[i]), fx[i], 1e-15);
+            double[] expected = gaussian.derivativeParameters(x[i]);
+            for (int pi = 0; pi < 3; pi++) {
+                assertEquals("Fail on gradient.", expected[pi], jacobian[i * 3 + pi], 1e-14);
+            }
+        }
+    }
+
+    @Test
+    public void testExponentiallyGaussianValueAndGradient() {
+        double[] parameters = new double[] { 2, 10, 1.5, 3 };
+        ExponentiallyGaussianFunction emg = new ExponentiallyGaussianFunction(2, 10, 1.5, 3);
+        double[] x = new double[] { 6, 9, 10, 12, 18 };
+
+        double[] fx = new double[x.length - 1];
+        double[] jacobian = new double[(x.length - 1) * 4];
+        emg.valueAndGradient(x, 1, x.length, fx, jacobian);
+
+        for (int i = 1; i < x.length; i++) {
+            assertEquals("Fail on value.", emg.calculate(x[i]), fx[i - 1], 1e-15);
+
+            // Central difference
+            double[] derivative = emg.derivativeParameters(x[i]);
+            for (int pi = 0; pi < parameters.length; pi++) {
+                double h = 1e-6;
+                double[] plus = parameters.clone();
+                double[] minus = parameters.clone();
+                plus[pi] += h;
+                minus[pi] -= h;
+                double expected = (new ExponentiallyGaussianFunction(plus[0], plus[1], plus[2], plus[3]).calculate(x[i])
+                        - new ExponentiallyGaussianFunction(minus[0], minus[1], minus[2], minus[3]).calculate(x[i])) / (2 * h);
+                assertEquals("Fail on parameter " + pi + " at x = " + x[i] + ".", expected, jacobian[(i - 1) * 4 + pi], 1e-6);
+                assertEquals("Fail on derivativeParameters.", jacobian[(i - 1) * 4 + pi], derivative[pi], 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kcwongjoe.joelib.math.sgd.GradientAccumulator;
+import com.kcwongjoe.joelib.math.sgd.lr_loss.L2LossFunc;
+import com.kcwongjoe.joelib.math.sgd.lr_loss.LossFunction;
+
+public class GradientAccumulatorTest {
+
+    @Test
+    public void testAdd() {
+        LossFunction lossFunction = new L2LossFunc();
+        double[] y = new double[] { 1, 2, 3, 4 };
+        double[] fx = new double[] { 1.5, 1.5, 2, Double.NaN };
+        double[][] dfdtheta = new double[][] { { 1, 2 }, { 3, 4 }, { 5, 6 }, { 7, 8 } };
+
+        GradientAccumulator accumulator = new GradientAccumulator(2);
+        accumulator.add(lossFunction, y, fx, dfdtheta, true);
+
+        // The NaN sample must be ignored, same as CumulativeAverage
+        double[] expected = new double[2];
+        for (int pi = 0; pi < 2; pi++) {
+            CumulativeAverage average = new CumulativeAverage();
+            for (int si = 0; si < y.length; si++) {
+                average.add(lossFunction.derivativeLoss(y[si], fx[si], dfdtheta[si][pi]));
+            }
+            expected[pi] = average.getMean();
+        }
+        assertArrayEquals("Fail on mean gradient.", expected, accumulator.getMeanGradient(new double[2]), 1e-12);
+        assertEquals("Fail on mean loss.", (0.125 + 0.125 + 0.5) / 3, accumulator.getMeanLoss(), 1e-12);
+        assertEquals("Fail on number of losses.", 3, accumulator.getNumOfLosses());
+        assertEquals("Fail on number of skipped losses.", 1, accumulator.getNumOfSkippedLosses());
+
+        accumulator.clear();
+        assertEquals("Fail on clear.", 0, accumulator.getMeanGradient(0), 0);
+        assertEquals("Fail on clear.", 0, accumulator.getNumOfSkippedLosses());
+    }
+
+    @Test
+    public void testMergeLargeCount() {
+        GradientAccumulator accumulator = new GradientAccumulator(2);
+        accumulator.addGradient(1, new double[] { 1, 2 }, 0);
+        accumulator.addGradient(1, new double[] { 3, Double.NaN }, 0);
+        accumulator.addLoss(1);
+        accumulator.addLoss(Double.NaN);
+
+        // 2^32 copies of the samples, e.g. the blocks of a large DataSource
+        for (int i = 0; i < 32; i++) {
+            GradientAccumulator merged = new GradientAccumulator(2);
+            merged.merge(accumulator);
+            merged.merge(accumulator);
+            accumulator = merged;
+        }
+
+        assertEquals("Fail on number of losses.", 1L << 32, accumulator.getNumOfLosses());
+        assertEquals("Fail on number of skipped losses.", 1L << 32, accumulator.getNumOfSkippedLosses());
+        assertEquals("Fail on mean loss.", 1, accumulator.getMeanLoss(), 0);
+        assertArrayEquals("Fail on mean gradient.", new double[] { 2, 2 }, accumulator.getMeanGradient(new double[2]), 0);
+    }
+}
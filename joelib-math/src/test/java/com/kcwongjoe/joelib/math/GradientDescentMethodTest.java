@@ -0,0 +1,107 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.kcwongjoe.joelib.math.sgd.StochasticGradientDescent;
+import com.kcwongjoe.joelib.math.sgd.gd.AMSGrad;
+import com.kcwongjoe.joelib.math.sgd.gd.Adagrad;
+import com.kcwongjoe.joelib.math.sgd.gd.Adam;
+import com.kcwongjoe.joelib.math.sgd.gd.AdamW;
+import com.kcwongjoe.joelib.math.sgd.gd.GradientDescentMethod;
+import com.kcwongjoe.joelib.math.sgd.gd.MomentumBasedGD;
+import com.kcwongjoe.joelib.math.sgd.gd.Nadam;
+import com.kcwongjoe.joelib.math.sgd.gd.NesterovMomentumBasedGD;
+import com.kcwongjoe.joelib.math.sgd.gd.RMSProp;
+import com.kcwongjoe.joelib.math.sgd.gd.StandardGradientDescent;
+
+public class GradientDescentMethodTest {
+
+    @Test
+    public void testUpdateTheta() {
+        GradientDescentMethod[] methods = new GradientDescentMethod[] { new Adam(), new Adagrad(), new MomentumBasedGD(0.5), new NesterovMomentumBasedGD(0.5), new StandardGradientDescent(), new RMSProp(), new AdamW(), new Nadam(), new AMSGrad() };
+        for (GradientDescentMethod method : methods) {
+            GradientDescentMethod scalar = method.copy();
+            scalar.Reset(3);
+            method.Reset(3);
+
+            double[] expected = new double[] { 1, -2, 3 };
+            double[] theta = expected.clone();
+            for (int step = 0; step < 5; step++) {
+                double[] derivativeTheta = new double[] { 0.5 - step, 2 * step, -1 };
+
+                // Scalar version
+                for (int i = 0; i < expected.length; i++) {
+                    expected[i] = scalar.calculateTheta(i, 0.1, expected[i], derivativeTheta[i]);
+                }
+
+                // Vector version
+                method.updateTheta(0.1, theta, derivativeTheta);
+
+                assertArrayEquals("Fail on " + method + ".", expected, theta, 0);
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateThetaWithBounds() {
+        double[] lowerBound = new double[] { 0.9, Double.NaN, Double.NaN };
+        double[] upperBound = new double[] { Double.NaN, -1.9, Double.NaN };
+
+        GradientDescentMethod[] methods = new GradientDescentMethod[] { new Adam(), new Adagrad(), new MomentumBasedGD(0.5), new NesterovMomentumBasedGD(0.5), new StandardGradientDescent(), new RMSProp(), new AdamW(), new Nadam(), new AMSGrad() };
+        for (GradientDescentMethod method : methods) {
+            GradientDescentMethod unbounded = method.copy();
+            unbounded.Reset(3);
+            method.Reset(3);
+
+            double[] expected = new double[] { 1, -2, 3 };
+            double[] theta = expected.clone();
+            for (int step = 0; step < 5; step++) {
+                double[] derivativeTheta = new double[] { 1, -1, 0.5 };
+
+                // Update then clamp
+                unbounded.updateTheta(0.1, expected, derivativeTheta);
+                expected[0] = Math.max(expected[0], lowerBound[0]);
+                expected[1] = Math.min(expected[1], upperBound[1]);
+
+                // Fused
+                method.updateTheta(0.1, theta, derivativeTheta, lowerBound, upperBound);
+
+                assertArrayEquals("Fail on " + method + ".", expected, theta, 0);
+            }
+        }
+    }
+
+    @Test
+    public void testAdaptiveMethods() throws IOException {
+        double[][] data = StochasticGradientDescentTest.gaussianData(1000);
+
+        GradientDescentMethod[] methods = new GradientDescentMethod[] { new RMSProp(), new AdamW(0.9, 0.999, 1e-8, 0), new Nadam(), new AMSGrad() };
+        for (GradientDescentMethod method : methods) {
+            StochasticGradientDescent sgd = new StochasticGradientDescent(new StochasticGradientDescentTest.GaussianObjective(1, 8, 1));
+            sgd.setGradientDescentMethod(method);
+            sgd.setInitLearningRate(0.05);
+            sgd.setMaxEpochs(1000);
+            double[] theta = sgd.solve(data[0], data[1]);
+            assertArrayEquals("Fail on " + method + ".", new double[] { 3, 10, 2 }, theta, 0.05);
+
+            // State round trip
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            method.writeState(new DataOutputStream(bytes));
+            GradientDescentMethod restored = method.copy();
+            restored.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            double[] expected = theta.clone();
+            double[] derivativeTheta = new double[] { 0.1, -0.2, 0.3 };
+            method.updateTheta(0.05, expected, derivativeTheta);
+            restored.updateTheta(0.05, theta, derivativeTheta);
+            assertArrayEquals("Fail on state of " + method + ".", expected, theta, 0);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kcwongjoe.joelib.math.sgd.LBFGS;
+import com.kcwongjoe.joelib.math.sgd.ObjectiveFunction;
+
+public class LBFGSTest {
+
+    @Test
+    public void testSolve() {
+        double[][] data = StochasticGradientDescentTest.gaussianData(2000);
+
+        LBFGS lbfgs = new LBFGS(new StochasticGradientDescentTest.GaussianBatchObjective(1, 8, 1));
+        lbfgs.setMaxIterations(200);
+        double[] theta = lbfgs.solve(data[0], data[1]);
+
+        assertArrayEquals("Fail on solve.", new double[] { 3, 10, 2 }, theta, 0.01);
+
+        // Repeated solve reuses the workspace
+        double[] again = lbfgs.solve(data[0], data[1]);
+        assertArrayEquals("Fail on repeated solve.", theta, again, 0);
+    }
+
+    /**
+     * f(x) = a * x + b, which is not defined on x &gt; 5 if a &gt; 1.5
+     */
+    public static class PartlyDefinedLine implements ObjectiveFunction {
+
+        private double[] parameters = new double[] { 0, 0 };
+
+        @Override
+        public void setParameter(double[] parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public double[] getParameter() {
+            return this.parameters;
+        }
+
+        @Override
+        public double[] function(double[] x) {
+            double[] fx = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                fx[i] = this.parameters[0] > 1.5 && x[i] > 5 ? Double.NaN : this.parameters[0] * x[i] + this.parameters[1];
+            }
+            return fx;
+        }
+
+        @Override
+        public double[][] derivativeFunctionParameters(double[] x) {
+            double[][] result = new double[x.length][];
+            for (int i = 0; i < x.length; i++) {
+                result[i] = new double[] { x[i], 1 };
+            }
+            return result;
+        }
+    }
+
+    /**
+     * y = 2 * x + 1 on [0, 10), whose solution is not defined on x &gt; 5 by {@link PartlyDefinedLine}
+     */
+    public static double[][] lineData() {
+        double[] x = new double[100];
+        double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i / 10.0;
+            y[i] = 2 * x[i] + 1;
+        }
+        return new double[][] { x, y };
+    }
+
+    @Test
+    public void testNonFiniteLoss() {
+        double[][] data = lineData();
+        double[] x = data[0];
+        double[] y = data[1];
+
+        PartlyDefinedLine function = new PartlyDefinedLine();
+        LBFGS lbfgs = new LBFGS(function);
+        lbfgs.setInitParameters(new double[] { 0, 0 });
+        lbfgs.setMaxIterations(100);
+        double[] theta = lbfgs.solve(x, y);
+
+        // Steps into the undefined region are rejected rather than scored on the defined samples only
+        assertTrue("Fail on undefined region.", theta[0] <= 1.5);
+        function.setParameter(theta);
+        for (double fx : function.function(x)) {
+            assertTrue("Fail on undefined region.", Double.isFinite(fx));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.kcwongjoe.joelib.math.sgd.lr_decay.CosineAnnealingDecay;
+import com.kcwongjoe.joelib.math.sgd.lr_decay.ExponentialDecay;
+import com.kcwongjoe.joelib.math.sgd.lr_decay.JumpDecay;
+import com.kcwongjoe.joelib.math.sgd.lr_decay.LearningRateDecayMethod;
+import com.kcwongjoe.joelib.math.sgd.lr_decay.LinearWarmup;
+import com.kcwongjoe.joelib.math.sgd.lr_decay.PlateauDecay;
+
+public class LearningRateDecayTest {
+
+    @Test
+    public void testPlateauDecay() {
+        PlateauDecay decay = new PlateauDecay(0.5, 2);
+        decay.setCooldown(1);
+
+        double lr = 1;
+        double[] losses = new double[] { -1, 1, 1, 1, 1, 1, 1, 0.5 };
+        double[] expected = new double[] { 1, 1, 1, 0.5, 0.5, 0.5, 0.25, 0.25 };
+        for (int i = 0; i < losses.length; i++) {
+            lr = decay.getLearningrate(1, lr, i, losses[i]);
+            assertEquals("Fail on epoch " + i + ".", expected[i], lr, 0);
+        }
+
+        // Min learning rate
+        decay.reset();
+        decay.setCooldown(0);
+        decay.setMinLearningRate(0.2);
+        for (int i = 0; i < 10; i++) {
+            lr = decay.getLearningrate(1, lr, i, 1);
+        }
+        assertEquals("Fail on min learning rate.", 0.2, lr, 0);
+
+        // Moving average ignores a single noisy epoch
+        PlateauDecay smoothed = new PlateauDecay(0.5, 1);
+        smoothed.setWindow(3);
+        lr = 1;
+        for (double loss : new double[] { 3, 2, 1.9, 1.8, 1.7, 1.75 }) {
+            lr = smoothed.getLearningrate(1, lr, 0, loss);
+        }
+        assertEquals("Fail on window.", 1, lr, 0);
+    }
+
+    @Test
+    public void testCosineAnnealingDecay() {
+        CosineAnnealingDecay decay = new CosineAnnealingDecay(4, 2, 0.1);
+
+        assertEquals("Fail on start.", 1, decay.getLearningrate(1, 1, 0, 0), 1e-15);
+        assertEquals("Fail on middle.", 0.55, decay.getLearningrate(1, 1, 2, 0), 1e-15);
+        assertEquals("Fail on first restart.", 1, decay.getLearningrate(1, 1, 4, 0), 1e-15);
+        assertEquals("Fail on second period.", 0.55, decay.getLearningrate(1, 1, 8, 0), 1e-15);
+        assertEquals("Fail on second restart.", 1, decay.getLearningrate(1, 1, 12, 0), 1e-15);
+
+        decay.setPeriodMultiplier(1);
+        assertEquals("Fail on fixed period.", 0.55, decay.getLearningrate(1, 1, 10, 0), 1e-15);
+    }
+
+    @Test
+    public void testLinearWarmup() {
+        LinearWarmup warmup = new LinearWarmup(4, new ExponentialDecay(1, 0.1));
+
+        assertEquals("Fail on warmup.", 0.25, warmup.getLearningrate(1, 1, 0, 0), 1e-15);
+        assertEquals("Fail on warmup.", 1, warmup.getLearningrate(1, 1, 3, 0), 1e-15);
+        assertEquals("Fail on after warmup.", Math.exp(-0.2), warmup.getLearningrate(1, 1, 6, 0), 1e-15);
+
+        warmup.setAfter(null);
+        assertEquals("Fail on constant after warmup.", 1, warmup.getLearningrate(1, 1, 6, 0), 1e-15);
+    }
+
+    @Test
+    public void testState() throws IOException {
+        LearningRateDecayMethod[] methods = new LearningRateDecayMethod[] { new PlateauDecay(0.5, 3), new JumpDecay(), new LinearWarmup(2, new PlateauDecay(0.5, 2)) };
+        for (LearningRateDecayMethod method : methods) {
+            LearningRateDecayMethod copy = method.copy();
+
+            double lr = 1;
+            double[] losses = new double[] { -1, 1, 0.9, 0.95, 0.95, 0.95 };
+            for (int i = 0; i < losses.length; i++) {
+                lr = method.getLearningrate(1, lr, i, losses[i]);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            method.writeState(new DataOutputStream(bytes));
+            copy.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            for (int i = losses.length; i < 20; i++) {
+                double loss = 1;
+                assertEquals("Fail on " + method + " epoch " + i + ".", method.getLearningrate(1, lr, i, loss), copy.getLearningrate(1, lr, i, loss), 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kcwongjoe.joelib.math.sgd.LevenbergMarquardt;
+
+public class LevenbergMarquardtTest {
+
+    @Test
+    public void testSolve() {
+        double[][] data = StochasticGradientDescentTest.gaussianData(2000);
+
+        LevenbergMarquardt lm = new LevenbergMarquardt(new StochasticGradientDescentTest.GaussianObjective(1, 8, 1));
+        lm.setMaxIterations(20);
+        double[] theta = lm.solve(data[0], data[1]);
+
+        assertArrayEquals("Fail on solve.", new double[] { 3, 10, 2 }, theta, 0.01);
+    }
+
+    @Test
+    public void testParameterRange() {
+        double[][] data = StochasticGradientDescentTest.gaussianData(2000);
+
+        LevenbergMarquardt lm = new LevenbergMarquardt(new StochasticGradientDescentTest.GaussianBatchObjective(1, 8, 1));
+        lm.setParameterRange(new double[][] { { 0, 2.5 }, { Double.NaN, Double.NaN }, { 0.5, Double.NaN } });
+        double[] theta = lm.solve(data[0], data[1]);
+
+        assertEquals("Fail on bounded parameter.", 2.5, theta[0], 0);
+        assertEquals("Fail on free parameter.", 10, theta[1], 0.05);
+    }
+
+    @Test
+    public void testNonFiniteLoss() {
+        double[][] data = LBFGSTest.lineData();
+
+        LBFGSTest.PartlyDefinedLine function = new LBFGSTest.PartlyDefinedLine();
+        LevenbergMarquardt lm = new LevenbergMarquardt(function);
+        lm.setInitParameters(new double[] { 0, 0 });
+        double[] theta = lm.solve(data[0], data[1]);
+
+        // Steps into the undefined region are rejected rather than scored on the defined samples only
+        assertTrue("Fail on undefined region.", theta[0] <= 1.5);
+        function.setParameter(theta);
+        for (double fx : function.function(data[0])) {
+            assertTrue("Fail on undefined region.", Double.isFinite(fx));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kcwongjoe.joelib.math.func.ExponentiallyGaussianFunction;
+import com.kcwongjoe.joelib.math.func.GaussianFunction;
+import com.kcwongjoe.joelib.math.func.MultiPeakFunction;
+import com.kcwongjoe.joelib.math.sgd.BatchObjectiveFunction;
+import com.kcwongjoe.joelib.math.sgd.StochasticGradientDescent;
+
+public class MultiPeakFunctionTest {
+
+    private static final int[] PEAK_TYPES = new int[] { MultiPeakFunction.GAUSSIAN, MultiPeakFunction.EXPONENTIALLY_GAUSSIAN, MultiPeakFunction.GAUSSIAN };
+    private static final double[] PARAMETERS = new double[] { 3, 10, 1, 2, 20, 1, 2, 4, 40, 1.5 };
+
+    /**
+     * Hide the sparse derivative, so the solver takes the dense path
+     */
+    private static BatchObjectiveFunction dense(MultiPeakFunction function) {
+        return new BatchObjectiveFunction() {
+            public void setParameter(double[] parameters) { function.setParameter(parameters); }
+            public double[] getParameter() { return function.getParameter(); }
+            public double[] function(double[] x) { return function.function(x); }
+            public double[][] derivativeFunctionParameters(double[] x) { return function.derivativeFunctionParameters(x); }
+            public void function(double[] x, int from, int to, double[] fx) { function.function(x, from, to, fx); }
+            public void derivativeFunctionParameters(double[] x, int from, int to, double[] jacobian) { function.derivativeFunctionParameters(x, from, to, jacobian); }
+            public void functionAndDerivative(double[] x, int from, int to, double[] fx, double[] jacobian) { function.functionAndDerivative(x, from, to, fx, jacobian); }
+        };
+    }
+
+    private static double[][] data(int n) {
+        MultiPeakFunction function = new MultiPeakFunction(PEAK_TYPES, PARAMETERS);
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i * 60.0 / n;
+        }
+        return new double[][] { x, function.function(x) };
+    }
+
+    @Test
+    public void testFunction() {
+        MultiPeakFunction function = new MultiPeakFunction(PEAK_TYPES, PARAMETERS);
+        GaussianFunction first = new GaussianFunction(3, 10, 1);
+        ExponentiallyGaussianFunction second = new ExponentiallyGaussianFunction(2, 20, 1, 2);
+        GaussianFunction third = new GaussianFunction(4, 40, 1.5);
+
+        double[] x = new double[] { 8, 10, 17, 19, 22, 30, 39, 41 };
+        double[] fx = function.function(x);
+        for (int i = 0; i < x.length; i++) {
+            double expected = first.calculate(x[i]) + second.calculate(x[i]) + third.calculate(x[i]);
+            assertEquals("Fail on x = " + x[i] + ".", expected, fx[i], 1e-5);
+        }
+
+        // Only the nearby peaks
+        assertEquals("Fail on window.", 0, function.function(new double[] { 0 })[0], 0);
+        assertEquals("Fail on window.", 0, function.function(new double[] { 60 })[0], 0);
+    }
+
+    @Test
+    public void testSparseDerivative() {
+        MultiPeakFunction function = new MultiPeakFunction(PEAK_TYPES, PARAMETERS);
+        double[] x = data(200)[0];
+        int numOfParameters = PARAMETERS.length;
+
+        double[] fx = new double[x.length];
+        double[] jacobian = new double[x.length * numOfParameters];
+        function.functionAndDerivative(x, 0, x.length, fx, jacobian);
+
+        double[] sparseFx = new double[x.length];
+        int[] rowStart = new int[x.length + 1];
+        int[] columnIndex = new int[x.length * function.getMaxNonZerosPerSample()];
+        double[] values = new double[columnIndex.length];
+        function.functionAndSparseDerivative(x, 0, x.length, sparseFx, rowStart, columnIndex, values);
+
+        assertArrayEquals("Fail on value.", fx, sparseFx, 0);
+        assertTrue("Jacobian must be sparse.", rowStart[x.length] < x.length * numOfParameters / 2);
+        for (int i = 0; i < x.length; i++) {
+            double[] row = new double[numOfParameters];
+            for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+                row[columnIndex[e]] = values[e];
+            }
+            for (int pi = 0; pi < numOfParameters; pi++) {
+                assertEquals("Fail on sample " + i + ".", jacobian[i * numOfParameters + pi], row[pi], 0);
+            }
+        }
+    }
+
+    @Test
+    public void testMaxNonZerosPerSample() {
+        MultiPeakFunction function = new MultiPeakFunction(PEAK_TYPES, PARAMETERS);
+
+        // The exponentially Gaussian peak overlaps both Gaussian peaks, but not at the same x
+        assertEquals("Fail on overlapping windows.", 7, function.getMaxNonZerosPerSample());
+
+        double[] x = data(2000)[0];
+        double[] fx = new double[x.length];
+        int[] rowStart = new int[x.length + 1];
+        int[] columnIndex = new int[x.length * function.getMaxNonZerosPerSample()];
+        double[] values = new double[columnIndex.length];
+        function.functionAndSparseDerivative(x, 0, x.length, fx, rowStart, columnIndex, values);
+        int maxNonZeros = 0;
+        for (int i = 0; i < x.length; i++) {
+            maxNonZeros = Math.max(maxNonZeros, rowStart[i + 1] - rowStart[i]);
+        }
+        assertEquals("Fail on bound.", maxNonZeros, function.getMaxNonZerosPerSample());
+
+        // Separated windows
+        function.setCutoff(1);
+        assertEquals("Fail on separated windows.", 4, function.getMaxNonZerosPerSample());
+
+        // Updated with the parameters
+        double[] parameters = PARAMETERS.clone();
+        parameters[1] = 20;
+        parameters[8] = 20;
+        function.setParameter(parameters);
+        assertEquals("Fail on parameters.", 10, function.getMaxNonZerosPerSample());
+    }
+
+    @Test
+    public void testSolve() {
+        double[][] data = data(3000);
+        double[] init = new double[] { 2, 10.5, 1.2, 1.5, 19.5, 1.2, 1.5, 3, 39.5, 1.2 };
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new MultiPeakFunction(PEAK_TYPES, init));
+        sgd.setMaxEpochs(300);
+        sgd.setInitLearningRate(0.05);
+        sgd.setStopAbsoluteLoss(0);
+        double[] theta = sgd.solve(data[0], data[1]);
+        assertTrue("Loss must be reduced.", sgd.calculateLoss(data[0], data[1], theta) < 0.01 * sgd.calculateLoss(data[0], data[1], init));
+
+        // Same as the dense path
+        StochasticGradientDescent dense = sgd.copy(dense(new MultiPeakFunction(PEAK_TYPES, init)));
+        assertArrayEquals("Fail on sparse gradient.", dense.solve(data[0], data[1]), theta, 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.kcwongjoe.joelib.math.sgd.regu.ElasticNetRegularization;
+import com.kcwongjoe.joelib.math.sgd.regu.L1Regularization;
+import com.kcwongjoe.joelib.math.sgd.regu.L2Regularization;
+import com.kcwongjoe.joelib.math.sgd.regu.Regularization;
+
+public class RegularizationTest {
+
+    @Test
+    public void testLoss() {
+        double[] theta = new double[] { 1, -2, 3 };
+
+        assertEquals("Fail on L1.", 0.5 * 6 / 3, new L1Regularization(0.5).loss(theta), 1e-15);
+        assertEquals("Fail on L2.", 0.5 * 14 / 3, new L2Regularization(0.5).loss(theta), 1e-15);
+        assertEquals("Fail on elastic net.", 0.5 * (0.25 * 6 + 0.75 * 14) / 3, new ElasticNetRegularization(0.5, 0.25).loss(theta), 1e-15);
+    }
+
+    @Test
+    public void testDerivativeLoss() {
+        double[] theta = new double[] { 1, -2, 3 };
+        double[] normalization = new double[] { 2, 4, 0.5 };
+
+        Regularization[] regularizations = new Regularization[] { new L1Regularization(0.5), new L2Regularization(0.5), new ElasticNetRegularization(0.5, 0.25) };
+        for (Regularization regularization : regularizations) {
+            for (double[] normalize : new double[][] { null, normalization }) {
+                regularization.setThetaNormalization(normalize);
+
+                double[] derivative = new double[theta.length];
+                regularization.derivativeLoss(theta, derivative);
+
+                // Central difference
+                for (int i = 0; i < theta.length; i++) {
+                    double h = 1e-6;
+                    double[] plus = theta.clone();
+                    double[] minus = theta.clone();
+                    plus[i] += h;
+                    minus[i] -= h;
+                    double expected = (regularization.loss(plus) - regularization.loss(minus)) / (2 * h);
+
+                    assertEquals("Fail on " + regularization + " at " + i + ".", expected, derivative[i], 1e-8);
+                }
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedDerivativeLoss() {
+        double[] theta = new double[] { 1, -2, 3 };
+
+        // Elastic net gives the mean of the derivatives
+        ElasticNetRegularization regularization = new ElasticNetRegularization(0.5, 0.25);
+        double[] derivative = new double[theta.length];
+        regularization.derivativeLoss(theta, derivative);
+        assertEquals("Fail on elastic net.", (derivative[0] + derivative[1] + derivative[2]) / 3, regularization.derivativeLoss(theta), 1e-15);
+    }
+}
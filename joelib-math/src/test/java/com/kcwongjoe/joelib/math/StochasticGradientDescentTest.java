@@ -0,0 +1,440 @@
+package com.kcwongjoe.joelib.math;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.kcwongjoe.joelib.math.func.GaussianFunction;
+import com.kcwongjoe.joelib.math.sgd.BatchObjectiveFunction;
+import com.kcwongjoe.joelib.math.sgd.ConsoleTrainingListener;
+import com.kcwongjoe.joelib.math.sgd.ConcurrentSolver;
+import com.kcwongjoe.joelib.math.sgd.MultiStartResult;
+import com.kcwongjoe.joelib.math.sgd.MultiStartSolver;
+import com.kcwongjoe.joelib.math.sgd.ObjectiveFunction;
+import com.kcwongjoe.joelib.math.sgd.StochasticGradientDescent;
+import com.kcwongjoe.joelib.math.sgd.TrainingRecorder;
+import com.kcwongjoe.joelib.math.sgd.gd.GradientDescentMethod;
+import com.kcwongjoe.joelib.math.sgd.lr_decay.JumpDecay;
+import com.kcwongjoe.joelib.math.sgd.lr_decay.PlateauDecay;
+
+public class StochasticGradientDescentTest {
+
+    /**
+     * Gaussian objective function f(x) = a * exp( -(x - b)^2 / (2 * c^2) )
+     */
+    public static class GaussianObjective implements ObjectiveFunction {
+
+        private double[] parameters;
+
+        public GaussianObjective(double a, double b, double c) {
+            this.parameters = new double[] { a, b, c };
+        }
+
+        @Override
+        public void setParameter(double[] parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public double[] getParameter() {
+            return this.parameters;
+        }
+
+        @Override
+        public double[] function(double[] x) {
+            return new GaussianFunction(parameters[0], parameters[1], parameters[2]).calculate(x);
+        }
+
+        @Override
+        public double[][] derivativeFunctionParameters(double[] x) {
+            return new GaussianFunction(parameters[0], parameters[1], parameters[2]).derivativeParameters(x);
+        }
+    }
+
+    /**
+     * Gaussian objective function writing into the solver buffers
+     */
+    public static class GaussianBatchObjective extends GaussianObjective implements BatchObjectiveFunction {
+
+        public GaussianBatchObjective(double a, double b, double c) {
+            super(a, b, c);
+        }
+
+        @Override
+        public void function(double[] x, int from, int to, double[] fx) {
+            GaussianFunction gaussian = new GaussianFunction(getParameter()[0], getParameter()[1], getParameter()[2]);
+            for (int i = from; i < to; i++) {
+                fx[i - from] = gaussian.calculate(x[i]);
+            }
+        }
+
+        @Override
+        public void derivativeFunctionParameters(double[] x, int from, int to, double[] jacobian) {
+            GaussianFunction gaussian = new GaussianFunction(getParameter()[0], getParameter()[1], getParameter()[2]);
+            for (int i = from; i < to; i++) {
+                double[] derivative = gaussian.derivativeParameters(x[i]);
+                System.arraycopy(derivative, 0, jacobian, (i - from) * 3, 3);
+            }
+        }
+    }
+
+    public static double[][] gaussianData(int n) {
+        Random random = new Random(1);
+        GaussianFunction gaussian = new GaussianFunction(3, 10, 2);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i * 20.0 / n;
+            y[i] = gaussian.calculate(x[i]) + 0.01 * random.nextGaussian();
+        }
+        return new double[][] { x, y };
+    }
+
+    @Test
+    public void testSolve() {
+        double[][] data = gaussianData(2000);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(500);
+        double[] theta = sgd.solve(data[0], data[1]);
+
+        assertArrayEquals("Fail on full batch.", new double[] { 3, 10, 2 }, theta, 0.05);
+    }
+
+    @Test
+    public void testBatchObjectiveFunction() {
+        double[][] data = gaussianData(10000);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        double[] expected = sgd.solve(data[0], data[1]);
+
+        sgd = new StochasticGradientDescent(new GaussianBatchObjective(1, 8, 1));
+        assertArrayEquals("Fail on batch objective function.", expected, sgd.solve(data[0], data[1]), 0);
+    }
+
+    @Test
+    public void testParallel() {
+        double[][] data = gaussianData(50000);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianBatchObjective(1, 8, 1));
+        sgd.setMaxEpochs(100);
+        double[] sequential = sgd.solve(data[0], data[1]);
+
+        sgd.setParallel(true);
+        sgd.setParallelThreshold(0);
+        double[] parallel = sgd.solve(data[0], data[1]);
+        assertArrayEquals("Fail on parallel.", sequential, parallel, 1e-9);
+
+        // The result must not depend on the number of threads
+        ForkJoinPool pool = new ForkJoinPool(3);
+        sgd.setForkJoinPool(pool);
+        assertArrayEquals("Fail on deterministic reduction.", parallel, sgd.solve(data[0], data[1]), 0);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testMultiStart() {
+        double[][] data = gaussianData(1000);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 1, 1));
+        sgd.setMaxEpochs(300);
+        sgd.setParameterRange(new double[][] { { 0.5, 5 }, { 0, 20 }, { 0.5, 5 } });
+
+        MultiStartSolver multiStart = new MultiStartSolver(sgd, () -> new GaussianObjective(1, 1, 1));
+        multiStart.setSeed(3L);
+        MultiStartResult result = multiStart.solve(data[0], data[1], 8);
+
+        assertEquals("Fail on number of starts.", 8, result.getNumOfStarts());
+        for (double loss : result.getLosses()) {
+            assertTrue("Best loss must be the lowest.", result.getBestLoss() <= loss);
+        }
+        assertArrayEquals("Fail on multi-start.", new double[] { 3, 10, 2 }, result.getBestParameters(), 0.05);
+    }
+
+    @Test
+    public void testRepeatedSolve() {
+        double[][] data = gaussianData(500);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        double[] theta1 = sgd.solve(data[0], data[1]);
+        double[] theta2 = sgd.solve(data[0], data[1]);
+
+        assertArrayEquals("Fail on repeated solve.", theta1, theta2, 0);
+        assertFalse("Results must not share the workspace.", theta1 == theta2);
+    }
+
+    @Test
+    public void testMiniBatch() {
+        double[][] data = gaussianData(2000);
+
+        // Shuffle
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(100);
+        sgd.setBatchSize(128);
+        sgd.setSeed(7L);
+        double[] theta = sgd.solve(data[0], data[1]);
+        assertArrayEquals("Fail on shuffled mini-batch.", new double[] { 3, 10, 2 }, theta, 0.05);
+        assertArrayEquals("Fail on seeded mini-batch.", theta, sgd.solve(data[0], data[1]), 0);
+
+        // With replacement
+        sgd.setSamplingMethod(StochasticGradientDescent.SAMPLING_WITH_REPLACEMENT);
+        theta = sgd.solve(data[0], data[1]);
+        assertArrayEquals("Fail on mini-batch with replacement.", new double[] { 3, 10, 2 }, theta, 0.05);
+    }
+
+    @Test
+    public void testTrainingListener() {
+        double[][] data = gaussianData(500);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(40);
+        sgd.setStopAbsoluteLoss(0);
+        TrainingRecorder recorder = new TrainingRecorder(8);
+        sgd.setTrainingListener(recorder);
+        double[] theta = sgd.solve(data[0], data[1]);
+
+        assertEquals("Fail on number of epochs.", 40, recorder.size());
+        assertEquals("Fail on last loss.", sgd.calculateLoss(data[0], data[1], theta), recorder.getLoss(39), 0);
+        assertTrue("Loss must decrease.", recorder.getLoss(39) < recorder.getLoss(0));
+        assertTrue("Fail on elapsed time.", recorder.getElapsedNanos(39) >= recorder.getElapsedNanos(0));
+
+        // Early termination
+        sgd.setTrainingListener((epoch, learningRate, loss, gradientNorm, elapsedNanos) -> epoch < 4);
+        double[] stopped = sgd.solve(data[0], data[1]);
+        sgd.setTrainingListener(recorder);
+        sgd.setMaxEpochs(5);
+        assertArrayEquals("Fail on early termination.", sgd.solve(data[0], data[1]), stopped, 0);
+    }
+
+    @Test
+    public void testConsoleTrainingListener() {
+        double[][] data = gaussianData(500);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(10);
+        sgd.setStopAbsoluteLoss(0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TrainingRecorder recorder = new TrainingRecorder();
+        sgd.setTrainingListener(new ConsoleTrainingListener(new PrintStream(bytes), recorder));
+        sgd.solve(data[0], data[1]);
+
+        // One line per epoch, and the wrapped listener is still called
+        String[] lines = bytes.toString().trim().split("\\R");
+        assertEquals("Fail on number of lines.", 10, lines.length);
+        assertTrue("Fail on line.", lines[9].startsWith("Iteration = 9 learning rate = "));
+        assertEquals("Fail on wrapped listener.", 10, recorder.size());
+    }
+
+    @Test
+    public void testCheckpoint() {
+        double[][] data = gaussianData(1000);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(30);
+        sgd.setStopAbsoluteLoss(0);
+        sgd.setBatchSize(100);
+        sgd.setSeed(5L);
+        sgd.setLearningRateDecayMethod(new JumpDecay());
+        List<byte[]> checkpoints = new ArrayList<>();
+        sgd.setCheckpointListener((epoch, checkpoint) -> checkpoints.add(checkpoint), 10);
+        double[] expected = sgd.solve(data[0], data[1]);
+
+        assertEquals("Fail on number of checkpoints.", 2, checkpoints.size());
+
+        // Resume on a new solver
+        StochasticGradientDescent resumed = sgd.copy(new GaussianObjective(1, 8, 1));
+        assertArrayEquals("Fail on resume.", expected, resumed.resume(checkpoints.get(0), data[0], data[1]), 0);
+        assertArrayEquals("Fail on resume.", expected, resumed.resume(checkpoints.get(1), data[0], data[1]), 0);
+    }
+
+    @Test
+    public void testCheckpointNotSupported() {
+        double[][] data = gaussianData(1000);
+
+        // Custom method without writeState and readState
+        GradientDescentMethod method = new GradientDescentMethod() {
+            public void Reset(int length) { }
+            public GradientDescentMethod copy() { return this; }
+            public double calculateTheta(int index, double learningRate, double theta, double derivativeTheta) { return theta - learningRate * derivativeTheta; }
+            public double calculateTheta(int index, double learningRate, double theta, double derivativeTheta, boolean updateInternalCoefficient) { return theta - learningRate * derivativeTheta; }
+            public double[] calculateTheta(double learningRate, double[] theta, double[] derivativeTheta) {
+                double[] newTheta = new double[theta.length];
+                for (int i = 0; i < theta.length; i++) {
+                    newTheta[i] = theta[i] - learningRate * derivativeTheta[i];
+                }
+                return newTheta;
+            }
+        };
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(30);
+        sgd.setStopAbsoluteLoss(0);
+        sgd.setGradientDescentMethod(method);
+        TrainingRecorder recorder = new TrainingRecorder();
+        sgd.setTrainingListener(recorder);
+        sgd.setCheckpointListener((epoch, checkpoint) -> { }, 10);
+
+        // Fail before the first epoch
+        try {
+            sgd.solve(data[0], data[1]);
+            fail("Checkpoint must not be supported.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Fail on number of epochs.", 0, recorder.size());
+        }
+
+        // Fine without checkpoint
+        sgd.setCheckpointListener(null, 0);
+        sgd.solve(data[0], data[1]);
+        assertEquals("Fail on number of epochs.", 30, recorder.size());
+    }
+
+    @Test
+    public void testLazyLoss() {
+        double[][] data = gaussianData(1000);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(20);
+        sgd.setStopAbsoluteLoss(0);
+        TrainingRecorder recorder = new TrainingRecorder();
+        sgd.setTrainingListener(recorder);
+        double[] expected = sgd.solve(data[0], data[1]);
+        double[] losses = recorder.getLosses();
+
+        // Every 5 epochs
+        sgd.setLossEvaluationInterval(5);
+        assertArrayEquals("Fail on loss evaluation interval.", expected, sgd.solve(data[0], data[1]), 0);
+        assertTrue("Loss must be skipped.", Double.isNaN(recorder.getLoss(3)));
+        assertEquals("Fail on evaluated loss.", losses[4], recorder.getLoss(4), 0);
+
+        // From gradient pass, the loss is one epoch behind
+        sgd.setLossFromGradientPass(true);
+        assertArrayEquals("Fail on loss from gradient pass.", expected, sgd.solve(data[0], data[1]), 0);
+        for (int i = 1; i < losses.length; i++) {
+            assertEquals("Fail on loss from gradient pass.", losses[i - 1], recorder.getLoss(i), 1e-12);
+        }
+    }
+
+    @Test
+    public void testPlateauDecayWithLossEvaluationInterval() {
+        double[][] data = gaussianData(1000);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(30);
+        sgd.setInitLearningRate(0.02);
+        sgd.setStopAbsoluteLoss(0);
+        sgd.setLossEvaluationInterval(5);
+        sgd.setLearningRateDecayMethod(new PlateauDecay(0.5, 2));
+        TrainingRecorder recorder = new TrainingRecorder();
+        sgd.setTrainingListener(recorder);
+        sgd.solve(data[0], data[1]);
+
+        // The loss improves on every evaluation, so the epochs between evaluations must not count as bad epochs
+        for (int epoch = 9; epoch < 30; epoch += 5) {
+            assertTrue("Loss must decrease.", recorder.getLoss(epoch) < recorder.getLoss(epoch - 5));
+        }
+        for (int epoch = 0; epoch < 30; epoch++) {
+            assertEquals("Fail on epoch " + epoch + ".", sgd.getInitLearningRate(), recorder.getLearningRate(epoch), 0);
+        }
+    }
+
+    @Test
+    public void testValidation() {
+        double[][] data = gaussianData(1000);
+
+        // The validation data peaks at 9, so the validation loss bottoms out before the training converges
+        GaussianFunction shifted = new GaussianFunction(3, 9, 2);
+        double[] xValidation = new double[200];
+        double[] yValidation = new double[200];
+        for (int i = 0; i < xValidation.length; i++) {
+            xValidation[i] = i * 0.1;
+            yValidation[i] = shifted.calculate(xValidation[i]);
+        }
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(500);
+        sgd.setStopAbsoluteLoss(0);
+        sgd.setValidationData(xValidation, yValidation);
+        sgd.setValidationPatience(3);
+        TrainingRecorder recorder = new TrainingRecorder();
+        sgd.setTrainingListener(recorder);
+        double[] theta = sgd.solve(data[0], data[1]);
+
+        int bestEpoch = sgd.getBestEpoch();
+        assertTrue("Fail on early stopping.", recorder.size() < 500);
+        assertEquals("Fail on patience.", bestEpoch + 4, recorder.size());
+        assertEquals("Fail on best validation loss.", sgd.getBestValidationLoss(), sgd.calculateLoss(xValidation, yValidation, theta), 0);
+
+        // Same as stopping at the best epoch
+        StochasticGradientDescent reference = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        reference.setMaxEpochs(bestEpoch + 1);
+        reference.setStopAbsoluteLoss(0);
+        assertArrayEquals("Fail on restoring the best parameters.", reference.solve(data[0], data[1]), theta, 0);
+
+        // Holdout fraction, resumed from a checkpoint
+        sgd.setValidationFraction(0.2);
+        sgd.setSeed(3L);
+        List<byte[]> checkpoints = new ArrayList<>();
+        sgd.setCheckpointListener((epoch, checkpoint) -> checkpoints.add(checkpoint), 10);
+        double[] expected = sgd.solve(data[0], data[1]);
+        assertTrue("Fail on holdout.", sgd.getBestEpoch() >= 0);
+        assertFalse("Fail on checkpoints.", checkpoints.isEmpty());
+
+        StochasticGradientDescent resumed = sgd.copy(new GaussianObjective(1, 8, 1));
+        assertArrayEquals("Fail on resume with holdout.", expected, resumed.resume(checkpoints.get(0), data[0], data[1]), 0);
+        assertEquals("Fail on resume with holdout.", sgd.getBestEpoch(), resumed.getBestEpoch());
+    }
+
+    @Test
+    public void testConcurrentSolver() throws Exception {
+        double[][] data = gaussianData(1000);
+        double[][] inits = new double[][] { { 1, 8, 1 }, { 2, 9, 1 }, { 1, 11, 3 }, { 4, 10, 1 } };
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+        sgd.setMaxEpochs(100);
+        sgd.setBatchSize(100);
+        sgd.setSeed(7L);
+        ConcurrentSolver solver = new ConcurrentSolver(sgd, () -> new GaussianObjective(1, 8, 1));
+
+        // Settings are copied
+        sgd.setMaxEpochs(1);
+
+        // Sequential reference
+        double[][] expected = new double[inits.length][];
+        for (int i = 0; i < inits.length; i++) {
+            StochasticGradientDescent reference = new StochasticGradientDescent(new GaussianObjective(1, 8, 1));
+            reference.setMaxEpochs(100);
+            reference.setBatchSize(100);
+            reference.setSeed(7L);
+            reference.setInitParameters(inits[i]);
+            expected[i] = reference.solve(data[0], data[1]);
+        }
+
+        // Concurrent calls on the same solver
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<double[]>> futures = new ArrayList<>();
+            for (int round = 0; round < 4; round++) {
+                for (double[] init : inits) {
+                    futures.add(executor.submit(() -> solver.solve(data[0], data[1], init)));
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertArrayEquals("Fail on call " + i + ".", expected[i % inits.length], futures.get(i).get(), 0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue("Contexts must be reused.", solver.getNumOfIdleContexts() <= 4);
+        assertArrayEquals("Fail on default initial parameters.", expected[0], solver.solve(data[0], data[1]), 0);
+    }
+}